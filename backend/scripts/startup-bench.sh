@@ -0,0 +1,78 @@
+#!/usr/bin/env bash
+# ─────────────────────────────────────────────────
+# 启动耗时对比：普通 JVM / AOT + AppCDS / GraalVM 原生镜像
+#
+# 先构建需要对比的产物（在 backend/ 目录下）：
+#   mvn -B package -DskipTests               -> target/codeforge-backend-*.jar
+#   mvn -B -Pcds package -DskipTests         -> target/cds/（解压后的 jar + application.jsa）
+#   mvn -B -Pnative native:compile           -> target/codeforge-backend
+#
+# 用法：scripts/startup-bench.sh [runs]
+# 每种模式启动 runs 次（默认 5 次），记录：
+#   startup  应用日志中 "Started CodeForgeApplication in X seconds" 的值
+#   ttfr     从进程启动到 GET /api/lessons 首次返回 200 的墙钟时间 (time-to-first-request)
+# MySQL / Redis / Kafka 需要已经启动，否则启动时间里会混入连接超时。
+# ─────────────────────────────────────────────────
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+RUNS="${1:-5}"
+PORT="${PORT:-8080}"
+URL="http://localhost:${PORT}/api/lessons"
+JAR="$(ls target/codeforge-backend-*.jar 2>/dev/null | grep -v '\.original$' | head -n 1 || true)"
+CDS_DIR="target/cds"
+NATIVE_BIN="target/codeforge-backend"
+
+now_ms() { date +%s%3N; }
+
+run_once() {
+    local label="$1"; shift
+    local log
+    log="$(mktemp)"
+    local start
+    start="$(now_ms)"
+    "$@" --server.port="${PORT}" >"${log}" 2>&1 &
+    local pid=$!
+
+    until curl -sf -o /dev/null "${URL}"; do
+        if ! kill -0 "${pid}" 2>/dev/null; then
+            echo "${label}: process exited before serving requests, see ${log}" >&2
+            return 1
+        fi
+        sleep 0.02
+    done
+    local ttfr=$(( $(now_ms) - start ))
+
+    kill "${pid}" && wait "${pid}" 2>/dev/null || true
+    local startup
+    startup="$(grep -oE 'Started CodeForgeApplication in [0-9.]+ seconds' "${log}" | grep -oE '[0-9.]+' | head -n 1)"
+    rm -f "${log}"
+    printf '%-8s startup=%6ss ttfr=%6sms\n' "${label}" "${startup:-?}" "${ttfr}"
+}
+
+bench() {
+    local label="$1"; shift
+    for _ in $(seq "${RUNS}"); do
+        run_once "${label}" "$@"
+    done
+}
+
+if [[ -n "${JAR}" ]]; then
+    bench "jvm" java -jar "${JAR}"
+else
+    echo "skip jvm: no jar in target/" >&2
+fi
+
+if [[ -f "${CDS_DIR}/application.jsa" ]]; then
+    bench "cds" java -XX:SharedArchiveFile="${CDS_DIR}/application.jsa" -Dspring.aot.enabled=true \
+        -jar "${CDS_DIR}/$(basename "${JAR:-codeforge-backend-0.0.1-SNAPSHOT.jar}")"
+else
+    echo "skip cds: run 'mvn -Pcds package' first" >&2
+fi
+
+if [[ -x "${NATIVE_BIN}" ]]; then
+    bench "native" "${NATIVE_BIN}"
+else
+    echo "skip native: run 'mvn -Pnative native:compile' first" >&2
+fi
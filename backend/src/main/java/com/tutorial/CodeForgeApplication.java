@@ -3,13 +3,16 @@ package com.tutorial;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * CodeForge 后端项目的 Spring Boot 启动入口类。
- * 启用了 @EnableAsync 异步支持，常用于 Kafka 事件和高并发任务的背线消费。
+ * 启用了 @EnableAsync 异步支持，常用于 Kafka 事件和高并发任务的背线消费；
+ * @EnableScheduling 用于限流租约清理等后台定时任务。
  */
 @SpringBootApplication
 @EnableAsync
+@EnableScheduling
 public class CodeForgeApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,150 @@
+package com.tutorial.config;
+
+import com.tutorial.util.AdaptiveConcurrencyLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.MediaType;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 自适应并发限流（过载保护），挂在 JwtFilter 之前，被拒绝的请求连 JWT 都不用解析。
+ * 每类接口（登录注册、支付写入、行情查询）各有一个独立的 {@link AdaptiveConcurrencyLimiter}：
+ * 在途请求数达到当前限额时立即返回 503 + Retry-After，而不是让请求在 Tomcat 线程池里排队；
+ * 限额根据观测到的延迟自动伸缩，一类接口变慢不会拖垮其它接口。
+ * 指标：http.concurrency.limit / http.concurrency.inflight（gauge）、http.concurrency.rejected（counter），
+ * 均带 class 标签。具体的接口分类在 SecurityConfig 中声明。
+ */
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private final List<Limited> classes = new ArrayList<>();
+    private final int retryAfterSeconds;
+
+    public ConcurrencyLimitFilter(List<EndpointClass> endpointClasses, int retryAfterSeconds,
+            MeterRegistry meterRegistry) {
+        this.retryAfterSeconds = retryAfterSeconds;
+        for (EndpointClass endpointClass : endpointClasses) {
+            AdaptiveConcurrencyLimiter limiter = endpointClass.limiter();
+            Gauge.builder("http.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::limit)
+                    .tag("class", endpointClass.name())
+                    .register(meterRegistry);
+            Gauge.builder("http.concurrency.inflight", limiter, AdaptiveConcurrencyLimiter::inFlight)
+                    .tag("class", endpointClass.name())
+                    .register(meterRegistry);
+            classes.add(new Limited(endpointClass,
+                    meterRegistry.counter("http.concurrency.rejected", "class", endpointClass.name())));
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain) throws ServletException, IOException {
+
+        Limited limited = classify(request);
+        if (limited == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        AdaptiveConcurrencyLimiter limiter = limited.endpointClass().limiter();
+        int inFlightAtStart = limiter.tryAcquire();
+        if (inFlightAtStart < 0) {
+            limited.rejected().increment();
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"error\":\"Server overloaded\",\"retryAfterSeconds\":"
+                    + retryAfterSeconds + "}");
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean async = false;
+        try {
+            filterChain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                // 异步请求在 doFilter 返回后仍在处理，等异步完成时再归还名额
+                async = true;
+                request.getAsyncContext().addListener(new ReleaseOnComplete(limiter, start, inFlightAtStart));
+            }
+        } finally {
+            if (!async) {
+                limiter.release(System.nanoTime() - start, inFlightAtStart, isLoadSignal(response.getStatus()));
+            }
+        }
+    }
+
+    private Limited classify(HttpServletRequest request) {
+        for (Limited limited : classes) {
+            if (limited.endpointClass().matcher().matches(request)) {
+                return limited;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 4xx responses are rejected before doing real work, so their latency says nothing about load.
+     */
+    private static boolean isLoadSignal(int status) {
+        return status < 400 || status >= 500;
+    }
+
+    /**
+     * One class of endpoints sharing a concurrency limit.
+     */
+    public record EndpointClass(String name, RequestMatcher matcher, AdaptiveConcurrencyLimiter limiter) {
+    }
+
+    private record Limited(EndpointClass endpointClass, Counter rejected) {
+    }
+
+    private static final class ReleaseOnComplete implements AsyncListener {
+
+        private final AdaptiveConcurrencyLimiter limiter;
+        private final long start;
+        private final int inFlightAtStart;
+        private boolean released;
+
+        ReleaseOnComplete(AdaptiveConcurrencyLimiter limiter, long start, int inFlightAtStart) {
+            this.limiter = limiter;
+            this.start = start;
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        @Override
+        public synchronized void onComplete(AsyncEvent event) {
+            if (!released) {
+                released = true;
+                boolean sample = !(event.getSuppliedResponse() instanceof HttpServletResponse response)
+                        || isLoadSignal(response.getStatus());
+                limiter.release(System.nanoTime() - start, inFlightAtStart, sample);
+            }
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
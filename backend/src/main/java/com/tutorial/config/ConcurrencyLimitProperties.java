@@ -0,0 +1,46 @@
+package com.tutorial.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Adaptive concurrency limits bound from {@code concurrency-limit.*}, one set per endpoint class.
+ */
+@Data
+@ConfigurationProperties(prefix = "concurrency-limit")
+public class ConcurrencyLimitProperties {
+
+    private boolean enabled = true;
+
+    /** Latency above the baseline accepted before the limit shrinks (1.5 = 50%). */
+    private double tolerance = 1.5;
+
+    /** Weight of each new estimate when moving the limit. */
+    private double smoothing = 0.2;
+
+    /** Number of samples the baseline latency is averaged over. */
+    private int longWindow = 600;
+
+    /** Seconds suggested to shed clients in the Retry-After header. */
+    private int retryAfterSeconds = 1;
+
+    private Limits auth = new Limits(20, 4, 100);
+    private Limits paymentWrite = new Limits(50, 10, 400);
+    private Limits stockRead = new Limits(100, 20, 1000);
+
+    @Data
+    public static class Limits {
+        private int initialLimit;
+        private int minLimit;
+        private int maxLimit;
+
+        public Limits() {
+        }
+
+        public Limits(int initialLimit, int minLimit, int maxLimit) {
+            this.initialLimit = initialLimit;
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.tutorial.config;
 
+import com.tutorial.util.JwtPrincipal;
 import com.tutorial.util.JwtUtil;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -45,10 +46,14 @@ public class JwtFilter extends OncePerRequestFilter {
 
                 if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
                     if (jwtUtil.validateToken(token, username)) {
+                        // 角色来自令牌中的 role 声明（登录时写入），缺省视为普通用户
+                        String role = jwtUtil.extractRole(token);
+                        // 主体带上令牌里的用户 ID（uid 声明），按用户取数据的接口不必再查 users 表
                         UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
-                                username,
+                                new JwtPrincipal(jwtUtil.extractUserId(token), username),
                                 null,
-                                Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER")));
+                                Collections.singletonList(new SimpleGrantedAuthority(
+                                        "ROLE_" + (role != null ? role : "USER"))));
                         SecurityContextHolder.getContext().setAuthentication(authentication);
                     }
                 }
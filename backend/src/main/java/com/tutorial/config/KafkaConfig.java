@@ -15,6 +15,7 @@ public class KafkaConfig {
 
     public static final String PAYMENT_TOPIC = "payment-events";
     public static final String STOCK_TOPIC = "stock-events";
+    public static final String PAYMENT_STATUS_TOPIC = "payment-status-events";
 
     @Bean
     public NewTopic paymentTopic() {
@@ -24,6 +25,17 @@ public class KafkaConfig {
                 .build();
     }
 
+    /**
+     * Final payment statuses (COMPLETED / FAILED) published by PaymentConsumer, keyed by payment ID.
+     */
+    @Bean
+    public NewTopic paymentStatusTopic() {
+        return TopicBuilder.name(PAYMENT_STATUS_TOPIC)
+                .partitions(3)
+                .replicas(1)
+                .build();
+    }
+
     @Bean
     public NewTopic stockTopic() {
         return TopicBuilder.name(STOCK_TOPIC)
@@ -0,0 +1,93 @@
+package com.tutorial.config;
+
+import com.tutorial.mapper.PaymentArchiveMapper;
+import com.tutorial.mapper.PaymentMapper;
+import com.tutorial.mapper.ShardMapMapper;
+import com.tutorial.mapper.StockMapper;
+import com.tutorial.mapper.UserMapper;
+import com.tutorial.model.Payment;
+import com.tutorial.model.ShardAssignment;
+import com.tutorial.model.Stock;
+import com.tutorial.model.StockChange;
+import com.tutorial.model.User;
+import com.tutorial.sharding.PaymentMigrationMapper;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+import java.util.List;
+
+/**
+ * AOT / GraalVM native-image hints for the parts of the app that Spring cannot infer:
+ * - MyBatis reads mapper XML from the classpath and builds JDK proxies for mapper interfaces
+ *   (the payment_id type handler is registered as an instance, see PaymentIdConfig)
+ * - Model classes are populated by MyBatis and (de)serialized by Jackson via reflection
+ *   (including the standalone {@code Payment.MAPPER} used for Kafka payloads)
+ * - jjwt locates its implementation classes and Jackson bridge by class name / ServiceLoader
+ */
+@Configuration
+@ImportRuntimeHints(NativeHintsConfig.AppRuntimeHints.class)
+public class NativeHintsConfig {
+
+    private static final List<Class<?>> MODELS = List.of(
+            Payment.class, Payment.PaymentBuilder.class,
+            ShardAssignment.class,
+            Stock.class, Stock.StockBuilder.class,
+            StockChange.class, StockChange.StockChangeBuilder.class,
+            User.class, User.UserBuilder.class);
+
+    private static final List<Class<?>> MAPPERS = List.of(
+            PaymentMapper.class, PaymentArchiveMapper.class, StockMapper.class, UserMapper.class,
+            ShardMapMapper.class, PaymentMigrationMapper.class);
+
+    private static final List<String> JJWT_TYPES = List.of(
+            "io.jsonwebtoken.impl.DefaultJwtBuilder",
+            "io.jsonwebtoken.impl.DefaultJwtParserBuilder",
+            "io.jsonwebtoken.impl.DefaultClaimsBuilder",
+            "io.jsonwebtoken.impl.security.StandardSecureDigestAlgorithms",
+            "io.jsonwebtoken.impl.security.StandardKeyOperations",
+            "io.jsonwebtoken.impl.security.StandardKeyAlgorithms",
+            "io.jsonwebtoken.impl.security.StandardEncryptionAlgorithms",
+            "io.jsonwebtoken.impl.security.StandardHashAlgorithms",
+            "io.jsonwebtoken.impl.security.KeysBridge",
+            "io.jsonwebtoken.impl.io.StandardCompressionAlgorithms",
+            "io.jsonwebtoken.jackson.io.JacksonSerializer",
+            "io.jsonwebtoken.jackson.io.JacksonDeserializer");
+
+    private static final List<String> MYBATIS_TYPES = List.of(
+            "org.apache.ibatis.logging.slf4j.Slf4jImpl",
+            "org.apache.ibatis.scripting.xmltags.XMLLanguageDriver",
+            "org.apache.ibatis.scripting.defaults.RawLanguageDriver",
+            "org.apache.ibatis.cache.impl.PerpetualCache",
+            "org.apache.ibatis.cache.decorators.LruCache",
+            "org.apache.ibatis.javassist.util.proxy.ProxyFactory",
+            "org.apache.ibatis.executor.loader.javassist.JavassistProxyFactory");
+
+    static class AppRuntimeHints implements RuntimeHintsRegistrar {
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            hints.resources().registerPattern("mapper/*.xml");
+            hints.resources().registerPattern("mapper/sharding/*.xml");
+            hints.resources().registerPattern("scripts/*.lua");
+            hints.resources().registerPattern("org/apache/ibatis/builder/xml/*.dtd");
+            hints.resources().registerPattern("META-INF/services/io.jsonwebtoken.*");
+
+            for (Class<?> model : MODELS) {
+                hints.reflection().registerType(model, MemberCategory.values());
+            }
+            for (Class<?> mapper : MAPPERS) {
+                hints.reflection().registerType(mapper, MemberCategory.values());
+                hints.proxies().registerJdkProxy(mapper);
+            }
+            for (String type : JJWT_TYPES) {
+                hints.reflection().registerTypeIfPresent(classLoader, type, MemberCategory.values());
+            }
+            for (String type : MYBATIS_TYPES) {
+                hints.reflection().registerTypeIfPresent(classLoader, type, MemberCategory.values());
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.tutorial.config;
+
+import com.tutorial.service.TokenBucketRateLimiter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 按路由限流的请求过滤器，挂在 JwtFilter 之后，这样已登录请求可以按用户名计数，匿名请求（如登录接口）按客户端 IP 计数。
+ * 超出配额时直接返回 429 Too Many Requests，并通过 Retry-After 头告诉客户端多少秒后再试。
+ * 具体的路由和配额在 SecurityConfig 中声明。
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final TokenBucketRateLimiter rateLimiter;
+    private final List<RateLimitRule> rules;
+
+    public RateLimitFilter(TokenBucketRateLimiter rateLimiter, List<RateLimitRule> rules) {
+        this.rateLimiter = rateLimiter;
+        this.rules = rules;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain) throws ServletException, IOException {
+
+        for (RateLimitRule rule : rules) {
+            if (!rule.matches(request)) {
+                continue;
+            }
+            TokenBucketRateLimiter.Decision decision = rateLimiter.tryAcquire(rule, clientKey(request));
+            if (!decision.allowed()) {
+                long retryAfterSeconds = (decision.retryAfterMillis() + 999) / 1000;
+                response.setStatus(429);
+                response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+                response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+                response.getWriter().write("{\"error\":\"Too many requests\",\"retryAfterSeconds\":"
+                        + retryAfterSeconds + "}");
+                return;
+            }
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    private String clientKey(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated() && authentication.getName() != null) {
+            return "user:" + authentication.getName();
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,31 @@
+package com.tutorial.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+
+/**
+ * A per-route token-bucket limit.
+ *
+ * @param name            bucket namespace used in the Redis key (e.g. "login")
+ * @param matcher         which requests this rule applies to
+ * @param capacity        burst size: maximum number of tokens in the bucket
+ * @param refillPerSecond sustained rate in tokens per second
+ * @param leaseSize       tokens a node takes from Redis at once and spends locally
+ */
+public record RateLimitRule(String name,
+        RequestMatcher matcher,
+        long capacity,
+        double refillPerSecond,
+        int leaseSize) {
+
+    public static RateLimitRule of(String name, String method, String pattern,
+            long capacity, double refillPerSecond, int leaseSize) {
+        return new RateLimitRule(name, new AntPathRequestMatcher(pattern, method),
+                capacity, refillPerSecond, leaseSize);
+    }
+
+    public boolean matches(HttpServletRequest request) {
+        return matcher.matches(request);
+    }
+}
@@ -1,5 +1,10 @@
 package com.tutorial.config;
 
+import com.tutorial.util.RedisClientSideCache;
+import io.lettuce.core.RedisURI;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
@@ -10,6 +15,8 @@ import org.springframework.data.redis.serializer.StringRedisSerializer;
 /**
  * Redis configuration providing a RedisTemplate with JSON value serialization.
  * Keys are stored as strings, values as Jackson-serialized JSON.
+ * Optionally (app.redis.client-cache.enabled) hot reads are served from a local cache kept correct by
+ * RESP3 invalidation messages; see {@link RedisClientSideCache}.
  */
 @Configuration
 public class RedisConfig {
@@ -30,4 +37,43 @@ public class RedisConfig {
         template.afterPropertiesSet();
         return template;
     }
+
+    /**
+     * Always present so callers need no null checks; when disabled it simply reads through the RedisTemplate.
+     * The tracking connection is separate from the template's pool and uses the same spring.data.redis settings.
+     */
+    @Bean(destroyMethod = "close")
+    public RedisClientSideCache redisClientSideCache(RedisTemplate<String, String> redisTemplate,
+            RedisProperties redisProperties,
+            MeterRegistry meterRegistry,
+            @Value("${app.redis.client-cache.enabled:false}") boolean enabled,
+            @Value("${app.redis.client-cache.max-entries:10000}") int maxEntries) {
+        RedisClientSideCache cache = new RedisClientSideCache(redisTemplate, maxEntries, meterRegistry);
+        if (enabled) {
+            cache.start(redisUri(redisProperties));
+        }
+        return cache;
+    }
+
+    private static RedisURI redisUri(RedisProperties properties) {
+        if (properties.getUrl() != null) {
+            return RedisURI.create(properties.getUrl());
+        }
+        RedisURI.Builder builder = RedisURI.builder()
+                .withHost(properties.getHost())
+                .withPort(properties.getPort())
+                .withDatabase(properties.getDatabase())
+                .withSsl(properties.getSsl().isEnabled());
+        if (properties.getTimeout() != null) {
+            builder.withTimeout(properties.getTimeout());
+        }
+        if (properties.getPassword() != null) {
+            if (properties.getUsername() != null) {
+                builder.withAuthentication(properties.getUsername(), properties.getPassword());
+            } else {
+                builder.withPassword(properties.getPassword());
+            }
+        }
+        return builder.build();
+    }
 }
@@ -1,5 +1,10 @@
 package com.tutorial.config;
 
+import com.tutorial.service.TokenBucketRateLimiter;
+import com.tutorial.util.AdaptiveConcurrencyLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -10,6 +15,10 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.util.matcher.AndRequestMatcher;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.NegatedRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
@@ -21,16 +30,75 @@ import java.util.List;
  * Spring Security configuration:
  * - Stateless session (JWT-based)
  * - CORS enabled for frontend dev server
- * - Public endpoints for auth, protected for everything else
+ * - Public endpoints for auth, ADMIN role for /api/admin/**, protected for everything else
+ * - Per-route token-bucket rate limits (429 + Retry-After when exceeded)
+ * - Adaptive per-endpoint-class concurrency limits in front of everything (503 + Retry-After when overloaded)
  */
 @Configuration
 @EnableWebSecurity
+@EnableConfigurationProperties(ConcurrencyLimitProperties.class)
 public class SecurityConfig {
 
     private final JwtFilter jwtFilter;
+    private final RateLimitFilter rateLimitFilter;
+    private final ConcurrencyLimitFilter concurrencyLimitFilter;
 
-    public SecurityConfig(JwtFilter jwtFilter) {
+    public SecurityConfig(JwtFilter jwtFilter,
+            TokenBucketRateLimiter rateLimiter,
+            ConcurrencyLimitProperties concurrencyLimits,
+            MeterRegistry meterRegistry,
+            @Value("${rate-limit.login.capacity:10}") long loginCapacity,
+            @Value("${rate-limit.login.refill-per-second:0.2}") double loginRefill,
+            @Value("${rate-limit.login.lease-size:2}") int loginLease,
+            @Value("${rate-limit.availability.capacity:30}") long availabilityCapacity,
+            @Value("${rate-limit.availability.refill-per-second:5}") double availabilityRefill,
+            @Value("${rate-limit.availability.lease-size:5}") int availabilityLease,
+            @Value("${rate-limit.payment.capacity:50}") long paymentCapacity,
+            @Value("${rate-limit.payment.refill-per-second:10}") double paymentRefill,
+            @Value("${rate-limit.payment.lease-size:10}") int paymentLease,
+            @Value("${rate-limit.payment-batch.capacity:5}") long batchCapacity,
+            @Value("${rate-limit.payment-batch.refill-per-second:0.5}") double batchRefill,
+            @Value("${rate-limit.payment-batch.lease-size:1}") int batchLease) {
         this.jwtFilter = jwtFilter;
+        this.rateLimitFilter = new RateLimitFilter(rateLimiter, List.of(
+                // 登录接口要跑 BCrypt，CPU 开销大，按 IP 严格限制
+                RateLimitRule.of("login", "POST", "/api/auth/login",
+                        loginCapacity, loginRefill, loginLease),
+                // 可用性检查随输入频繁调用，放宽限额，但仍要防止按 IP 批量枚举已注册的用户名 / 邮箱
+                RateLimitRule.of("availability", "GET", "/api/auth/availability",
+                        availabilityCapacity, availabilityRefill, availabilityLease),
+                // 支付接口每次都会写 MySQL、Redis 和 Kafka，按用户限制
+                RateLimitRule.of("payment", "POST", "/api/payments/process",
+                        paymentCapacity, paymentRefill, paymentLease),
+                // 批量接口单次请求最多几千笔，按请求数单独限制
+                RateLimitRule.of("payment-batch", "POST", "/api/payments/batch",
+                        batchCapacity, batchRefill, batchLease)));
+        List<ConcurrencyLimitFilter.EndpointClass> endpointClasses = !concurrencyLimits.isEnabled() ? List.of() : List.of(
+                // 登录 / 注册：BCrypt 吃 CPU
+                endpointClass("auth", null, "/api/auth/**",
+                        concurrencyLimits.getAuth(), concurrencyLimits),
+                // 支付写入：MySQL + Redis + Kafka
+                endpointClass("payment-write", "POST", "/api/payments/**",
+                        concurrencyLimits.getPaymentWrite(), concurrencyLimits),
+                // 行情查询：量大但轻，限额最高；实时推送是长连接，不占查询的并发额度
+                endpointClass("stock-read", new AndRequestMatcher(
+                                new AntPathRequestMatcher("/api/stocks/**", "GET"),
+                                new NegatedRequestMatcher(new AntPathRequestMatcher("/api/stocks/stream"))),
+                        concurrencyLimits.getStockRead(), concurrencyLimits));
+        this.concurrencyLimitFilter = new ConcurrencyLimitFilter(endpointClasses,
+                concurrencyLimits.getRetryAfterSeconds(), meterRegistry);
+    }
+
+    private static ConcurrencyLimitFilter.EndpointClass endpointClass(String name, String method, String pattern,
+            ConcurrencyLimitProperties.Limits limits, ConcurrencyLimitProperties properties) {
+        return endpointClass(name, new AntPathRequestMatcher(pattern, method), limits, properties);
+    }
+
+    private static ConcurrencyLimitFilter.EndpointClass endpointClass(String name, RequestMatcher matcher,
+            ConcurrencyLimitProperties.Limits limits, ConcurrencyLimitProperties properties) {
+        return new ConcurrencyLimitFilter.EndpointClass(name, matcher,
+                new AdaptiveConcurrencyLimiter(limits.getInitialLimit(), limits.getMinLimit(), limits.getMaxLimit(),
+                        properties.getTolerance(), properties.getSmoothing(), properties.getLongWindow()));
     }
 
     @Bean
@@ -42,8 +110,14 @@ public class SecurityConfig {
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/api/auth/**").permitAll()
                         .requestMatchers("/api/lessons/**").permitAll()
+                        .requestMatchers("/api/admin/**").hasRole("ADMIN")
+                        .requestMatchers("/actuator/health/**", "/actuator/info").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
                         .anyRequest().authenticated())
                 .addFilterBefore(jwtFilter, UsernamePasswordAuthenticationFilter.class)
+                .addFilterAfter(rateLimitFilter, JwtFilter.class)
+                // 过载时最先拒绝，省掉后面的 JWT 校验和限流开销
+                .addFilterBefore(concurrencyLimitFilter, JwtFilter.class)
                 .build();
     }
 
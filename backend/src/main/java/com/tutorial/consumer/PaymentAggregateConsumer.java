@@ -0,0 +1,45 @@
+package com.tutorial.consumer;
+
+import com.tutorial.service.PaymentAggregateStore;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * 支付汇总的数据源：读取 payment-events（提交）和 payment-status-events（终态）的全部分区。
+ * 与 StockEventConsumer 一样每个节点用随机消费组，所以每个节点都能拿到全部分区、维护完整的汇总。
+ * 分区分配后从 PaymentAggregateStore 记录的 offset（检查点恢复或当前进度）继续读，没有记录的分区从头读。
+ * 不依赖消费组提交的 offset：进度只以和状态一起写入的检查点为准。
+ */
+@Component
+public class PaymentAggregateConsumer implements ConsumerSeekAware {
+
+    private final PaymentAggregateStore aggregateStore;
+
+    public PaymentAggregateConsumer(PaymentAggregateStore aggregateStore) {
+        this.aggregateStore = aggregateStore;
+    }
+
+    @KafkaListener(topics = {"payment-events", "payment-status-events"},
+            groupId = "payment-aggregates-#{T(java.util.UUID).randomUUID().toString()}",
+            properties = {"auto.offset.reset=earliest", "enable.auto.commit=false"})
+    public void onPaymentEvent(ConsumerRecord<String, String> record) {
+        aggregateStore.apply(record);
+    }
+
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        for (TopicPartition partition : assignments.keySet()) {
+            Long next = aggregateStore.nextOffset(partition);
+            if (next != null) {
+                callback.seek(partition.topic(), partition.partition(), next);
+            } else {
+                callback.seekToBeginning(partition.topic(), partition.partition());
+            }
+        }
+    }
+}
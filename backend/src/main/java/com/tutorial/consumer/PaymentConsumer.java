@@ -1,20 +1,43 @@
 package com.tutorial.consumer;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.tutorial.config.KafkaConfig;
 import com.tutorial.mapper.PaymentMapper;
 import com.tutorial.model.Payment;
+import com.tutorial.profiling.PaymentConsumedEvent;
+import com.tutorial.service.PaymentDeadLetterService;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.kafka.annotation.DltHandler;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.RetryableTopic;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.retrytopic.DltStrategy;
+import org.springframework.kafka.retrytopic.TopicSuffixingStrategy;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.retry.annotation.Backoff;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * 基于 Kafka 的异步消息消费者（事件驱动模型核心组件）。
  * 用途：用于承接由其它微服务投递过来的高耗时【支付计算】事件。
  * 它模拟了第三方支付网关的延迟，经过异步等待和算力消耗后，将支付的最终状态
  * 录入回传至核心业务数据库 MySQL 以及热缓存 Redis 之中。
+ * 失败处理（非阻塞重试）：处理失败的消息转发到分级重试主题 payment-events-retry-0/1/2（延迟逐级加大），
+ * 由各自的消费者到期后再处理，主题 payment-events 的分区不会被一条坏消息卡住；
+ * 重试用尽后进入死信主题 payment-events-dlt，由 {@link #parkDeadLetter} 登记到 Redis，可通过管理接口重放。
+ * 消息可能被处理多次，因此处理逻辑是幂等的：已是终态的支付单只回写缓存，不会重新“支付”一次。
+ * 终态写入后发布到 payment-status-events（供支付汇总等下游使用）；发布失败同样走重试，下游按 paymentId 去重。
+ * 指标：payment.events.consumed{topic, outcome}（每一级重试主题的量）、payment.events.dead。
  */
 @Component
 public class PaymentConsumer {
@@ -23,52 +46,129 @@ public class PaymentConsumer {
 
     private final PaymentMapper paymentMapper;
     private final RedisTemplate<String, String> redisTemplate;
+    private final PaymentDeadLetterService deadLetterService;
+    private final MeterRegistry meterRegistry;
+    private final KafkaTemplate<String, String> kafkaTemplate;
 
-    public PaymentConsumer(PaymentMapper paymentMapper, RedisTemplate<String, String> redisTemplate) {
+    public PaymentConsumer(PaymentMapper paymentMapper, RedisTemplate<String, String> redisTemplate,
+            PaymentDeadLetterService deadLetterService, MeterRegistry meterRegistry,
+            KafkaTemplate<String, String> kafkaTemplate) {
         this.paymentMapper = paymentMapper;
         this.redisTemplate = redisTemplate;
+        this.deadLetterService = deadLetterService;
+        this.meterRegistry = meterRegistry;
+        this.kafkaTemplate = kafkaTemplate;
     }
 
     /**
      * @KafkaListener 注解：使当前方法成为指定 Topic（"payment-events"）的监听通道。
      * 当生产者在该队列中挂载了哪怕一条支付指令，本消费者就会被立即唤醒并吸取该消息进行计算。
+     * @RetryableTopic 为它额外创建重试主题和死信主题的监听；抛出的异常即触发转发，不要在方法内吞掉。
+     * 无法解析的消息重试也没用，直接进死信。
      */
+    @RetryableTopic(
+            attempts = "${app.payments.retry.attempts:4}",
+            backoff = @Backoff(
+                    delayExpression = "${app.payments.retry.initial-delay-ms:5000}",
+                    multiplierExpression = "${app.payments.retry.multiplier:6}",
+                    maxDelayExpression = "${app.payments.retry.max-delay-ms:600000}"),
+            topicSuffixingStrategy = TopicSuffixingStrategy.SUFFIX_WITH_INDEX_VALUE,
+            dltStrategy = DltStrategy.ALWAYS_RETRY_ON_ERROR,
+            exclude = JsonProcessingException.class,
+            traversingCauses = "true",
+            numPartitions = "3",
+            replicationFactor = "1")
     @KafkaListener(topics = "payment-events", groupId = "codeforge-group")
-    public void consumePaymentEvent(String message) {
+    public void consumePaymentEvent(String message,
+            @Header(KafkaHeaders.RECEIVED_TOPIC) String topic) throws InterruptedException {
+        // JFR 自定义事件：记录每条消息的处理耗时，供 /api/admin/profiling 的录制与实时汇总使用
+        PaymentConsumedEvent event = new PaymentConsumedEvent();
+        event.begin();
+        event.outcome = "ERROR";
         try {
             Payment payment = Payment.fromJson(message);
             String paymentId = payment.getPaymentId();
+            event.paymentId = paymentId;
 
-            log.info("Processing payment event: id={}, amount={} {}",
-                    paymentId, payment.getAmount(), payment.getCurrency());
-
-            // 这里手动阻塞线程，模拟真实世界中调用支付宝或微信支付接口所必须等待的公网通讯延迟 (1~3 秒)
-            Thread.sleep(1000 + (long) (Math.random() * 2000));
-
-            // 高级工程化模拟：引入 10% 的失败几率以体现真实网络环境下的支付掉单、余额不足或网络波动异常
+            // [幂等] 重试或重放的消息可能已经处理过（例如上次写库成功、写缓存失败），终态不再重新计算
+            Payment current = paymentMapper.findByPaymentId(paymentId);
             String newStatus;
-            if (Math.random() < 0.9) {
-                newStatus = "COMPLETED";
-                log.info("Payment completed successfully: id={}", paymentId);
+            if (current != null && isFinal(current.getStatus())) {
+                newStatus = current.getStatus();
+                log.info("Payment already {}, refreshing cache only: id={}", newStatus, paymentId);
             } else {
-                newStatus = "FAILED";
-                log.warn("Payment failed (simulated): id={}", paymentId);
+                newStatus = process(payment);
+                // [持久化落盘] 将敲定的最终支付状态 UPDATE 回 MySQL 物理表
+                paymentMapper.updateStatus(paymentId, newStatus);
             }
 
-            // [持久化落盘] 将敲定的最终支付状态 UPDATE 回 MySQL 物理表
-            paymentMapper.updateStatus(paymentId, newStatus);
-
             // [缓存回写] 将这个凭证放入 Redis 并设置半小时过期，方便前端频繁发起轮询接口查单时瞬间返回（抗压高并发）
             redisTemplate.opsForValue().set(
                     "payment:" + paymentId,
                     newStatus,
                     Duration.ofMinutes(30));
 
+            // [状态事件] 等待 Kafka 确认：发布失败时整条消息重试，重试走上面的幂等分支，只会再发一次状态事件
+            payment.setStatus(newStatus);
+            kafkaTemplate.send(KafkaConfig.PAYMENT_STATUS_TOPIC, paymentId, payment.toJson())
+                    .get(10, TimeUnit.SECONDS);
+            event.outcome = newStatus;
+            meterRegistry.counter("payment.events.consumed", "topic", topic, "outcome", "ok").increment();
+
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
-            log.error("Payment processing interrupted", e);
-        } catch (Exception e) {
-            log.error("Error processing payment event: {}", e.getMessage(), e);
+            event.outcome = "INTERRUPTED";
+            meterRegistry.counter("payment.events.consumed", "topic", topic, "outcome", "error").increment();
+            log.warn("Payment processing interrupted, forwarding for retry");
+            throw e;
+        } catch (ExecutionException | TimeoutException e) {
+            meterRegistry.counter("payment.events.consumed", "topic", topic, "outcome", "error").increment();
+            log.warn("Failed to publish payment status from {}: {}", topic, e.getMessage());
+            throw new IllegalStateException("Failed to publish payment status", e);
+        } catch (RuntimeException e) {
+            meterRegistry.counter("payment.events.consumed", "topic", topic, "outcome", "error").increment();
+            log.warn("Error processing payment event from {}: {}", topic, e.getMessage());
+            throw e;
+        } finally {
+            event.commit();
         }
     }
+
+    /**
+     * 重试用尽（或消息无法解析）后到达死信主题的消息：登记到 Redis，等待人工排查后重放。
+     * 重放只读 Redis 里的登记，所以登记失败（Redis 不可用）必须抛出：ALWAYS_RETRY_ON_ERROR 会把消息重新投回死信主题，
+     * 直到登记成功，而不是提交 offset 后让这条消息再也无法重放。
+     */
+    @DltHandler
+    public void parkDeadLetter(String message,
+            @Header(name = KafkaHeaders.RECEIVED_KEY, required = false) String key,
+            @Header(name = KafkaHeaders.DLT_EXCEPTION_MESSAGE, required = false) byte[] error) {
+        meterRegistry.counter("payment.events.dead").increment();
+        String reason = error == null ? null : new String(error, StandardCharsets.UTF_8);
+        log.error("Payment event dead-lettered: key={}, error={}, message={}", key, reason, message);
+        deadLetterService.park(key, message, reason);
+    }
+
+    /**
+     * 模拟调用第三方支付网关。
+     */
+    private String process(Payment payment) throws InterruptedException {
+        log.info("Processing payment event: id={}, amount={} {}",
+                payment.getPaymentId(), payment.getAmount(), payment.getCurrency());
+
+        // 这里手动阻塞线程，模拟真实世界中调用支付宝或微信支付接口所必须等待的公网通讯延迟 (1~3 秒)
+        Thread.sleep(1000 + (long) (Math.random() * 2000));
+
+        // 高级工程化模拟：引入 10% 的失败几率以体现真实网络环境下的支付掉单、余额不足或网络波动异常
+        if (Math.random() < 0.9) {
+            log.info("Payment completed successfully: id={}", payment.getPaymentId());
+            return "COMPLETED";
+        }
+        log.warn("Payment failed (simulated): id={}", payment.getPaymentId());
+        return "FAILED";
+    }
+
+    private static boolean isFinal(String status) {
+        return "COMPLETED".equals(status) || "FAILED".equals(status);
+    }
 }
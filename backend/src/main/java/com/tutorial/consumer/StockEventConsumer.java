@@ -0,0 +1,58 @@
+package com.tutorial.consumer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tutorial.config.KafkaConfig;
+import com.tutorial.model.StockChange;
+import com.tutorial.service.StockFeedHub;
+import com.tutorial.service.StockResponseCache;
+import com.tutorial.service.StockSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * stock-events 的广播消费者：每个节点用一个随机的消费组，因此每个节点都会收到全部商品变更。
+ * 收到变更后依次：更新本地列式快照、失效本地 JSON 字节缓存、推给本节点的实时订阅者。
+ * 只关心启动之后的变更（auto.offset.reset=latest），启动时的状态由快照全量加载提供。
+ */
+@Component
+public class StockEventConsumer {
+
+    private static final Logger log = LoggerFactory.getLogger(StockEventConsumer.class);
+
+    private final ObjectMapper objectMapper;
+    private final StockSnapshot stockSnapshot;
+    private final StockResponseCache stockResponseCache;
+    private final StockFeedHub stockFeedHub;
+
+    public StockEventConsumer(ObjectMapper objectMapper, StockSnapshot stockSnapshot,
+            StockResponseCache stockResponseCache, StockFeedHub stockFeedHub) {
+        this.objectMapper = objectMapper;
+        this.stockSnapshot = stockSnapshot;
+        this.stockResponseCache = stockResponseCache;
+        this.stockFeedHub = stockFeedHub;
+    }
+
+    @KafkaListener(topics = KafkaConfig.STOCK_TOPIC,
+            groupId = "stock-feed-#{T(java.util.UUID).randomUUID().toString()}",
+            properties = "auto.offset.reset=latest")
+    public void onStockEvent(String message) {
+        StockChange change;
+        try {
+            change = objectMapper.readValue(message, StockChange.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Skipping malformed stock event: {}", e.getMessage());
+            return;
+        }
+        // 先更新快照再推送：订阅者补发的快照里一定已包含这次变更
+        if (StockChange.DELETE.equals(change.getType())) {
+            stockSnapshot.remove(change.getId());
+        } else {
+            stockSnapshot.upsert(change.getStock());
+        }
+        stockResponseCache.invalidate(change.getId());
+        stockFeedHub.publish(change);
+    }
+}
@@ -1,9 +1,11 @@
 package com.tutorial.controller;
 
 import com.tutorial.service.AuthService;
+import com.tutorial.service.UserAvailabilityService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -15,9 +17,35 @@ import java.util.Map;
 public class AuthController {
 
     private final AuthService authService;
+    private final UserAvailabilityService userAvailabilityService;
 
-    public AuthController(AuthService authService) {
+    public AuthController(AuthService authService, UserAvailabilityService userAvailabilityService) {
         this.authService = authService;
+        this.userAvailabilityService = userAvailabilityService;
+    }
+
+    /**
+     * GET /api/auth/availability?username=...&email=... — Check whether a username and/or email is free.
+     * Either parameter may be omitted; the answer is advisory, registration can still lose a race.
+     */
+    @GetMapping("/availability")
+    public ResponseEntity<?> availability(@RequestParam(value = "username", required = false) String username,
+            @RequestParam(value = "email", required = false) String email) {
+        try {
+            UserAvailabilityService.Availability availability = userAvailabilityService.check(username, email);
+            Map<String, Object> result = new LinkedHashMap<>();
+            if (availability.usernameAvailable() != null) {
+                result.put("username", Map.of("value", username.trim(), "available", availability.usernameAvailable()));
+            }
+            if (availability.emailAvailable() != null) {
+                result.put("email", Map.of("value", email.trim(), "available", availability.emailAvailable()));
+            }
+            return ResponseEntity.ok(result);
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", e.getMessage()));
+        }
     }
 
     /**
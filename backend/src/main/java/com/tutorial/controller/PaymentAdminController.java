@@ -0,0 +1,55 @@
+package com.tutorial.controller;
+
+import com.tutorial.service.PaymentDeadLetterService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dead-lettered payment events (ADMIN role): inspect them and replay them to payment-events
+ * once the cause has been fixed.
+ */
+@RestController
+@RequestMapping("/api/admin/payments/dead-letters")
+public class PaymentAdminController {
+
+    private static final int MAX_BATCH = 1000;
+
+    private final PaymentDeadLetterService deadLetterService;
+
+    public PaymentAdminController(PaymentDeadLetterService deadLetterService) {
+        this.deadLetterService = deadLetterService;
+    }
+
+    /**
+     * GET /api/admin/payments/dead-letters?limit=100 — Oldest parked events with their last error.
+     */
+    @GetMapping
+    public ResponseEntity<?> listDeadLetters(@RequestParam(value = "limit", defaultValue = "100") int limit) {
+        if (limit <= 0 || limit > MAX_BATCH) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "limit must be between 1 and " + MAX_BATCH));
+        }
+        List<Map<String, Object>> entries = deadLetterService.list(limit);
+        return ResponseEntity.ok(Map.of(
+                "parked", deadLetterService.parkedCount(),
+                "entries", entries));
+    }
+
+    /**
+     * POST /api/admin/payments/dead-letters/replay?limit=100 — Re-publish the oldest parked events.
+     */
+    @PostMapping("/replay")
+    public ResponseEntity<?> replayDeadLetters(@RequestParam(value = "limit", defaultValue = "100") int limit) {
+        if (limit <= 0 || limit > MAX_BATCH) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "limit must be between 1 and " + MAX_BATCH));
+        }
+        int replayed = deadLetterService.replay(limit);
+        return ResponseEntity.ok(Map.of(
+                "replayed", replayed,
+                "remaining", deadLetterService.parkedCount()));
+    }
+}
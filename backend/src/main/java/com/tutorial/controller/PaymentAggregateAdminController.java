@@ -0,0 +1,39 @@
+package com.tutorial.controller;
+
+import com.tutorial.service.PaymentAggregateStore;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * Payment totals across users (ADMIN role); users read their own through /api/payments/aggregates.
+ */
+@RestController
+@RequestMapping("/api/admin/payments/aggregates")
+public class PaymentAggregateAdminController {
+
+    private final PaymentAggregateStore aggregateStore;
+
+    public PaymentAggregateAdminController(PaymentAggregateStore aggregateStore) {
+        this.aggregateStore = aggregateStore;
+    }
+
+    /**
+     * GET /api/admin/payments/aggregates?window=month&period=2024-06 — Totals of all users, or of one with userId=42.
+     */
+    @GetMapping
+    public ResponseEntity<?> getAggregates(
+            @RequestParam(value = "userId", required = false) Long userId,
+            @RequestParam(value = "window", defaultValue = "day") String window,
+            @RequestParam(value = "period", required = false) String period) {
+        try {
+            return ResponseEntity.ok(aggregateStore.totals(userId,
+                    PaymentAggregateStore.Granularity.parse(window), period));
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+}
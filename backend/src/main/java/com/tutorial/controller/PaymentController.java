@@ -1,10 +1,15 @@
 package com.tutorial.controller;
 
 import com.tutorial.model.Payment;
+import com.tutorial.service.PaymentAggregateStore;
 import com.tutorial.service.PaymentService;
+import com.tutorial.util.JwtPrincipal;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -16,9 +21,11 @@ import java.util.Map;
 public class PaymentController {
 
     private final PaymentService paymentService;
+    private final PaymentAggregateStore aggregateStore;
 
-    public PaymentController(PaymentService paymentService) {
+    public PaymentController(PaymentService paymentService, PaymentAggregateStore aggregateStore) {
         this.paymentService = paymentService;
+        this.aggregateStore = aggregateStore;
     }
 
     /**
@@ -36,6 +43,29 @@ public class PaymentController {
                         "message", "Payment is being processed asynchronously"));
     }
 
+    /**
+     * POST /api/payments/batch — Submit up to thousands of payments in one request.
+     * Request body: { "payments": [ { "userId": 1, "amount": 12.50, "currency": "USD", "description": "..." }, ... ] }
+     * Every item gets its own result (payment ID or error), in request order.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<?> processBatch(@RequestBody PaymentBatchRequest request) {
+        try {
+            List<PaymentService.BatchItemResult> results = paymentService.processBatch(request.payments());
+            long accepted = results.stream().filter(r -> "PENDING".equals(r.status())).count();
+            return ResponseEntity.accepted()
+                    .body(Map.of(
+                            "total", results.size(),
+                            "accepted", accepted,
+                            "failed", results.size() - accepted,
+                            "results", results));
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+
     /**
      * GET /api/payments/status/{id} — Query the current status of a payment.
      * Checks Redis cache first for fast lookups, falls back to MySQL.
@@ -50,4 +80,40 @@ public class PaymentController {
                 "paymentId", paymentId,
                 "status", status));
     }
+
+    /**
+     * GET /api/payments/aggregates — The caller's own count and amount per currency and status
+     * (SUBMITTED / COMPLETED / FAILED) for one day or month, e.g. /api/payments/aggregates?window=month&period=2024-06
+     * userId may be omitted; any other user's ID is rejected with 403 (all-users totals: /api/admin/payments/aggregates).
+     * Without period the current day / month is used.
+     * Served from the in-process aggregate store, so the numbers trail the event streams slightly (see asOf).
+     */
+    @GetMapping("/aggregates")
+    public ResponseEntity<?> getAggregates(
+            Authentication authentication,
+            @RequestParam(value = "userId", required = false) Long userId,
+            @RequestParam(value = "window", defaultValue = "day") String window,
+            @RequestParam(value = "period", required = false) String period) {
+        // 用户 ID 取自令牌的 uid 声明，不查库；没有该声明的旧令牌需要重新登录
+        Long callerId = authentication.getPrincipal() instanceof JwtPrincipal principal ? principal.userId() : null;
+        if (callerId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("error", "Token carries no user ID, please log in again"));
+        }
+        if (userId != null && !userId.equals(callerId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(Map.of("error", "Only your own payment totals are available here"));
+        }
+        try {
+            return ResponseEntity.ok(aggregateStore.totals(callerId,
+                    PaymentAggregateStore.Granularity.parse(window), period));
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    public record PaymentBatchRequest(List<Payment> payments) {
+    }
 }
@@ -0,0 +1,167 @@
+package com.tutorial.controller;
+
+import com.tutorial.profiling.HotPathMonitor;
+import com.tutorial.profiling.JfrRecordingService;
+import com.tutorial.profiling.ProfilingPreset;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * On-demand profiling of the running service (ADMIN role).
+ * Recordings are JFR files for offline analysis in JDK Mission Control; the live endpoints summarize
+ * allocation hot spots and slow mapper / PaymentConsumer calls in-process.
+ */
+@RestController
+@RequestMapping("/api/admin/profiling")
+public class ProfilingAdminController {
+
+    private final JfrRecordingService recordingService;
+    private final HotPathMonitor hotPathMonitor;
+
+    public ProfilingAdminController(JfrRecordingService recordingService, HotPathMonitor hotPathMonitor) {
+        this.recordingService = recordingService;
+        this.hotPathMonitor = hotPathMonitor;
+    }
+
+    /**
+     * GET /api/admin/profiling/presets — Available recording presets.
+     */
+    @GetMapping("/presets")
+    public ResponseEntity<List<Map<String, String>>> getPresets() {
+        List<Map<String, String>> presets = new ArrayList<>();
+        for (ProfilingPreset preset : ProfilingPreset.values()) {
+            presets.add(Map.of("name", preset.name(), "description", preset.description()));
+        }
+        return ResponseEntity.ok(presets);
+    }
+
+    /**
+     * POST /api/admin/profiling/recordings — Start a recording.
+     * Request body: { "preset": "CPU", "durationSeconds": 60 }
+     */
+    @PostMapping("/recordings")
+    public ResponseEntity<?> startRecording(@RequestBody Map<String, Object> request) {
+        try {
+            Object preset = request.get("preset");
+            if (!(preset instanceof String name)) {
+                return ResponseEntity.badRequest()
+                        .body(Map.of("error", "Missing required field: preset"));
+            }
+            Map<String, Object> recording = recordingService.start(
+                    ProfilingPreset.valueOf(name.toUpperCase(Locale.ROOT)), durationOf(request));
+            return ResponseEntity.accepted().body(recording);
+
+        } catch (IllegalArgumentException | ClassCastException e) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(409)
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * GET /api/admin/profiling/recordings — All recordings that have not been deleted or expired.
+     */
+    @GetMapping("/recordings")
+    public ResponseEntity<List<Map<String, Object>>> listRecordings() {
+        return ResponseEntity.ok(recordingService.list());
+    }
+
+    /**
+     * POST /api/admin/profiling/recordings/{id}/stop — Stop a recording before its duration elapses.
+     */
+    @PostMapping("/recordings/{id}/stop")
+    public ResponseEntity<Map<String, Object>> stopRecording(@PathVariable("id") long id) {
+        return recordingService.stop(id)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * GET /api/admin/profiling/recordings/{id}/file — Download the .jfr file
+     * (a snapshot of the data so far if the recording is still running).
+     */
+    @GetMapping("/recordings/{id}/file")
+    public ResponseEntity<Resource> downloadRecording(@PathVariable("id") long id) {
+        return recordingService.file(id)
+                .map(this::attachment)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * DELETE /api/admin/profiling/recordings/{id} — Close a recording and delete its files.
+     */
+    @DeleteMapping("/recordings/{id}")
+    public ResponseEntity<Void> deleteRecording(@PathVariable("id") long id) {
+        return recordingService.delete(id)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * POST /api/admin/profiling/live — Start a live hot-path summary window.
+     * Request body (optional): { "durationSeconds": 120 }
+     */
+    @PostMapping("/live")
+    public ResponseEntity<?> startLive(@RequestBody(required = false) Map<String, Object> request) {
+        try {
+            return ResponseEntity.accepted().body(hotPathMonitor.start(durationOf(request)));
+        } catch (IllegalArgumentException | ClassCastException e) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(409)
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * GET /api/admin/profiling/live — Top allocation sites and slowest calls of the current (or last) window.
+     */
+    @GetMapping("/live")
+    public ResponseEntity<Map<String, Object>> getLiveSummary() {
+        return ResponseEntity.ok(hotPathMonitor.summary());
+    }
+
+    /**
+     * DELETE /api/admin/profiling/live — End the live window early (the summary stays readable).
+     */
+    @DeleteMapping("/live")
+    public ResponseEntity<Map<String, Object>> stopLive() {
+        hotPathMonitor.stop();
+        return ResponseEntity.ok(hotPathMonitor.summary());
+    }
+
+    private ResponseEntity<Resource> attachment(Path file) {
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(file.getFileName().toString()).build().toString())
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .body(new FileSystemResource(file));
+    }
+
+    private static Duration durationOf(Map<String, Object> request) {
+        Object seconds = request == null ? null : request.get("durationSeconds");
+        if (seconds == null) {
+            return null;
+        }
+        long value = ((Number) seconds).longValue();
+        if (value <= 0) {
+            throw new IllegalArgumentException("durationSeconds must be positive");
+        }
+        return Duration.ofSeconds(value);
+    }
+}
@@ -0,0 +1,81 @@
+package com.tutorial.controller;
+
+import com.tutorial.sharding.PaymentResharder;
+import com.tutorial.sharding.PaymentShardRouter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Admin endpoints for the payment shards (ADMIN role, only when sharding is enabled).
+ */
+@RestController
+@RequestMapping("/api/admin/sharding")
+@ConditionalOnProperty(prefix = "app.sharding", name = "enabled", havingValue = "true")
+public class ShardingAdminController {
+
+    private final PaymentShardRouter router;
+    private final PaymentResharder resharder;
+
+    public ShardingAdminController(PaymentShardRouter router, PaymentResharder resharder) {
+        this.router = router;
+        this.resharder = resharder;
+    }
+
+    /**
+     * GET /api/admin/sharding — Bucket counts per shard, buckets in flight and the resharding status.
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getShardMap() {
+        int[] owners = router.ownersSnapshot();
+        int[] targets = router.targetsSnapshot();
+        int[] bucketsPerShard = new int[router.shardCount()];
+        Map<Integer, Integer> migrating = new HashMap<>();
+        for (int bucket = 0; bucket < owners.length; bucket++) {
+            bucketsPerShard[owners[bucket]]++;
+            if (targets[bucket] >= 0) {
+                migrating.put(bucket, targets[bucket]);
+            }
+        }
+        Map<String, Object> result = new HashMap<>();
+        result.put("bucketsPerShard", bucketsPerShard);
+        result.put("migrating", migrating);
+        result.put("resharding", resharder.status());
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * POST /api/admin/sharding/move — Move buckets to another shard online.
+     * Request body: { "buckets": [1, 2, 3], "targetShard": 2 }
+     */
+    @PostMapping("/move")
+    public ResponseEntity<?> moveBuckets(@RequestBody Map<String, Object> request) {
+        try {
+            Object buckets = request.get("buckets");
+            Object targetShard = request.get("targetShard");
+            if (!(buckets instanceof List<?> list) || !(targetShard instanceof Number target)) {
+                return ResponseEntity.badRequest()
+                        .body(Map.of("error", "Missing required fields: buckets, targetShard"));
+            }
+            Set<Integer> bucketSet = new LinkedHashSet<>();
+            for (Object bucket : list) {
+                bucketSet.add(((Number) bucket).intValue());
+            }
+            resharder.moveBuckets(bucketSet, target.intValue());
+            return ResponseEntity.accepted().body(Map.of("status", resharder.status()));
+
+        } catch (IllegalArgumentException | ClassCastException e) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(409)
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+}
@@ -1,11 +1,18 @@
 package com.tutorial.controller;
 
 import com.tutorial.model.Stock;
+import com.tutorial.service.StockResponseCache;
 import com.tutorial.service.StockService;
+import com.tutorial.service.StockSnapshot;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Stock/Inventory REST controller.
@@ -30,28 +37,69 @@ public class StockController {
         return ResponseEntity.ok(stocks);
     }
 
+    /**
+     * GET /api/stocks/query — Filter and sort the in-memory snapshot, e.g.
+     * /api/stocks/query?category=Technology&maxQuantity=100&sort=value&order=desc&limit=20
+     * Parameters: minPrice, maxPrice, minQuantity, maxQuantity, category,
+     * sort (id | price | quantity | value), order (asc | desc), limit, parallel.
+     */
+    @GetMapping("/query")
+    public ResponseEntity<?> queryStocks(
+            @RequestParam(value = "minPrice", required = false) BigDecimal minPrice,
+            @RequestParam(value = "maxPrice", required = false) BigDecimal maxPrice,
+            @RequestParam(value = "minQuantity", required = false) Integer minQuantity,
+            @RequestParam(value = "maxQuantity", required = false) Integer maxQuantity,
+            @RequestParam(value = "category", required = false) String category,
+            @RequestParam(value = "sort", defaultValue = "id") String sort,
+            @RequestParam(value = "order", defaultValue = "asc") String order,
+            @RequestParam(value = "limit", defaultValue = "100") int limit,
+            @RequestParam(value = "parallel", defaultValue = "false") boolean parallel) {
+        try {
+            StockSnapshot.Result result = stockService.query(new StockSnapshot.Query(
+                    minPrice, maxPrice, minQuantity, maxQuantity, category,
+                    StockSnapshot.Sort.parse(sort), "desc".equalsIgnoreCase(order), limit, parallel));
+            return ResponseEntity.ok(Map.of(
+                    "matched", result.matched(),
+                    "returned", result.items().size(),
+                    "tookMicros", result.tookMicros(),
+                    "items", result.items()));
+
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * GET /api/stocks/stream — Live change feed (Server-Sent Events), e.g.
+     * /api/stocks/stream?symbols=AAPL,MSFT or /api/stocks/stream?categories=Technology
+     * Events: snapshot (matching stocks), then upsert (a stock) and delete ({"id": ...}).
+     * A stock that stops matching the filter is sent as a delete.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamStocks(
+            @RequestParam(value = "symbols", required = false) List<String> symbols,
+            @RequestParam(value = "categories", required = false) List<String> categories) {
+        return stockService.stream(symbols, categories);
+    }
+
     /**
      * GET /api/stocks/{id} — Get a single stock by ID.
+     * The body is written from cached, pre-serialized JSON bytes (gzip when the client accepts it).
      */
     @GetMapping("/{id}")
-    public ResponseEntity<Stock> getStockById(@PathVariable Long id) {
-        Stock stock = stockService.findById(id);
-        if (stock == null) {
-            return ResponseEntity.notFound().build();
-        }
-        return ResponseEntity.ok(stock);
+    public ResponseEntity<byte[]> getStockById(@PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return cachedJson(stockService.findJsonById(id), acceptEncoding);
     }
 
     /**
      * GET /api/stocks/symbol/{symbol} — Lookup a stock by ticker symbol.
      */
     @GetMapping("/symbol/{symbol}")
-    public ResponseEntity<Stock> getStockBySymbol(@PathVariable String symbol) {
-        Stock stock = stockService.findBySymbol(symbol.toUpperCase());
-        if (stock == null) {
-            return ResponseEntity.notFound().build();
-        }
-        return ResponseEntity.ok(stock);
+    public ResponseEntity<byte[]> getStockBySymbol(@PathVariable String symbol,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return cachedJson(stockService.findJsonBySymbol(symbol.toUpperCase()), acceptEncoding);
     }
 
     /**
@@ -64,12 +112,15 @@ public class StockController {
     }
 
     /**
-     * PUT /api/stocks/{id} — Update an existing stock item.
+     * PUT /api/stocks/{id} — Update an existing stock item (404 if there is none with this ID).
      */
     @PutMapping("/{id}")
     public ResponseEntity<Stock> updateStock(@PathVariable Long id, @RequestBody Stock stock) {
         stock.setId(id);
         Stock updated = stockService.update(stock);
+        if (updated == null) {
+            return ResponseEntity.notFound().build();
+        }
         return ResponseEntity.ok(updated);
     }
 
@@ -81,4 +132,17 @@ public class StockController {
         stockService.delete(id);
         return ResponseEntity.noContent().build();
     }
+
+    private static ResponseEntity<byte[]> cachedJson(StockResponseCache.Entry entry, String acceptEncoding) {
+        if (entry == null) {
+            return ResponseEntity.notFound().build();
+        }
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (entry.gzip() != null && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            return ok.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(entry.gzip());
+        }
+        return ok.body(entry.json());
+    }
 }
@@ -0,0 +1,34 @@
+package com.tutorial.datasource;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read-replica settings bound from {@code app.datasource.replicas.*}.
+ * The primary keeps using the regular {@code spring.datasource.*} properties.
+ */
+@Data
+@ConfigurationProperties(prefix = "app.datasource.replicas")
+public class ReplicaProperties {
+
+    private boolean enabled = false;
+
+    /** Timeout passed to {@link java.sql.Connection#isValid(int)} during health checks. */
+    private int validationTimeoutSeconds = 2;
+
+    /** Optional script run against every replica at startup (local/dev setups only). */
+    private String initSchema;
+
+    private List<Node> nodes = new ArrayList<>();
+
+    @Data
+    public static class Node {
+        private String url;
+        private String username;
+        private String password;
+        private String driverClassName;
+    }
+}
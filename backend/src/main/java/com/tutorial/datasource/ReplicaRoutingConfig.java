@@ -0,0 +1,75 @@
+package com.tutorial.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.init.DatabasePopulatorUtils;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Opt-in read/write splitting ({@code app.datasource.replicas.enabled=true}).
+ * The primary pool is built from {@code spring.datasource.*} (including {@code spring.datasource.hikari.*}),
+ * each replica from {@code app.datasource.replicas.nodes[*]}. MyBatis and the transaction manager
+ * pick up the {@link Primary} lazy proxy, so mappers need no changes.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.datasource.replicas", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(ReplicaProperties.class)
+public class ReplicaRoutingConfig {
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(DataSourceProperties primaryProperties,
+            ReplicaProperties replicaProperties,
+            Environment environment,
+            ResourceLoader resourceLoader) {
+        HikariDataSource primary = primaryProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+
+        List<DataSource> replicas = new ArrayList<>();
+        for (ReplicaProperties.Node node : replicaProperties.getNodes()) {
+            DataSourceBuilder<HikariDataSource> builder = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(node.getUrl())
+                    .username(node.getUsername())
+                    .password(node.getPassword());
+            if (node.getDriverClassName() != null) {
+                builder.driverClassName(node.getDriverClassName());
+            }
+            HikariDataSource replica = builder.build();
+            if (replicaProperties.getInitSchema() != null) {
+                DatabasePopulatorUtils.execute(
+                        new ResourceDatabasePopulator(resourceLoader.getResource(replicaProperties.getInitSchema())),
+                        replica);
+            }
+            replicas.add(replica);
+        }
+
+        return new ReplicaRoutingDataSource(primary, replicas, replicaProperties.getValidationTimeoutSeconds());
+    }
+
+    /**
+     * Defers the physical connection (and therefore the routing decision) until the first statement,
+     * by which point the transaction's read-only flag is known.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+}
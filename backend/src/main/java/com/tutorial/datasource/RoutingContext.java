@@ -0,0 +1,31 @@
+package com.tutorial.datasource;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * Per-request routing state: once a request has written to the primary,
+ * its later reads are pinned to the primary too, so the client never reads
+ * a replica that has not caught up with its own write (read-your-writes).
+ * Outside an HTTP request (Kafka consumers, schedulers) nothing is pinned.
+ */
+public final class RoutingContext {
+
+    private static final String PRIMARY_PINNED = RoutingContext.class.getName() + ".PRIMARY_PINNED";
+
+    private RoutingContext() {
+    }
+
+    public static void pinPrimary() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            attributes.setAttribute(PRIMARY_PINNED, Boolean.TRUE, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    public static boolean isPrimaryPinned() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes != null
+                && attributes.getAttribute(PRIMARY_PINNED, RequestAttributes.SCOPE_REQUEST) != null;
+    }
+}
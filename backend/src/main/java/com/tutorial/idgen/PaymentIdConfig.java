@@ -0,0 +1,83 @@
+package com.tutorial.idgen;
+
+import org.mybatis.spring.boot.autoconfigure.ConfigurationCustomizer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.util.Locale;
+
+/**
+ * Selects the payment ID generator ({@code app.payment-id.strategy}) and the payment_id column layout
+ * ({@code app.payment-id.storage}), and rejects combinations the column cannot hold.
+ * Changing the storage of an existing database needs the migration in db/payment-id-storage.sql.
+ */
+@Configuration
+public class PaymentIdConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentIdConfig.class);
+
+    private final String strategy;
+    private final PaymentIdStorage storage;
+
+    public PaymentIdConfig(@Value("${app.payment-id.strategy:uuidv7}") String strategy,
+            @Value("${app.payment-id.storage:string}") String storage) {
+        this.strategy = strategy.trim().toLowerCase(Locale.ROOT);
+        this.storage = PaymentIdStorage.valueOf(storage.trim().toUpperCase(Locale.ROOT));
+    }
+
+    @Bean
+    public PaymentIdStorage paymentIdStorage() {
+        return storage;
+    }
+
+    /**
+     * Registers the payment_id type handler on the main SqlSessionFactory; ShardingConfig does the same for each shard.
+     */
+    @Bean
+    public ConfigurationCustomizer paymentIdTypeHandlerCustomizer() {
+        return configuration -> PaymentIdTypeHandler.register(configuration.getTypeHandlerRegistry(), storage);
+    }
+
+    @Bean
+    public PaymentIdGenerator paymentIdGenerator(@Value("${app.payment-id.node-id:-1}") int nodeId,
+            @Value("${app.sharding.enabled:false}") boolean shardingEnabled) {
+        PaymentIdGenerator generator = switch (strategy) {
+            case "uuid" -> new RandomUuidGenerator();
+            case "uuidv7" -> new UuidV7Generator();
+            case "snowflake" -> new SnowflakeIdGenerator(nodeId >= 0 ? nodeId : derivedNodeId());
+            default -> throw new IllegalStateException("Unknown app.payment-id.strategy: " + strategy);
+        };
+
+        boolean uuidForm = !(generator instanceof SnowflakeIdGenerator);
+        if (storage == PaymentIdStorage.BINARY && !uuidForm || storage == PaymentIdStorage.BIGINT && uuidForm) {
+            throw new IllegalStateException("app.payment-id.storage=" + storage.name().toLowerCase(Locale.ROOT)
+                    + " cannot hold ids from app.payment-id.strategy=" + strategy);
+        }
+        if (!uuidForm && shardingEnabled) {
+            log.warn("Snowflake payment ids carry no shard bucket; lookups by payment id will fan out to every shard");
+        }
+        log.info("Payment ids: strategy={}, storage={}", generator.name(), storage);
+        return generator;
+    }
+
+    /**
+     * Node ID from the host name and process ID. Unique enough for a handful of instances; set
+     * {@code app.payment-id.node-id} explicitly (e.g. from the pod ordinal) when running many.
+     */
+    private static int derivedNodeId() {
+        String identity;
+        try {
+            identity = InetAddress.getLocalHost().getHostName() + "/" + ManagementFactory.getRuntimeMXBean().getName();
+        } catch (Exception e) {
+            identity = ManagementFactory.getRuntimeMXBean().getName();
+        }
+        int nodeId = Math.floorMod(identity.hashCode(), SnowflakeIdGenerator.MAX_NODE_ID + 1);
+        log.warn("app.payment-id.node-id is not set; derived node id {} from {}", nodeId, identity);
+        return nodeId;
+    }
+}
@@ -0,0 +1,19 @@
+package com.tutorial.idgen;
+
+/**
+ * Strategy for issuing new payment IDs (selected by {@code app.payment-id.strategy}).
+ * Implementations must be safe to call from many threads without taking a shared lock.
+ */
+public interface PaymentIdGenerator {
+
+    /**
+     * @param userId owner of the payment; UUID-style generators embed its shard bucket in the ID
+     * @return a new payment ID in its external string form
+     */
+    String nextId(Long userId);
+
+    /**
+     * Short name used in logs and benchmark output.
+     */
+    String name();
+}
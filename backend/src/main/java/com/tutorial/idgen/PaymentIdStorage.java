@@ -0,0 +1,167 @@
+package com.tutorial.idgen;
+
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.UUID;
+
+/**
+ * How the payment_id column is stored ({@code app.payment-id.storage}). The application always works with the
+ * external string form; {@link PaymentIdTypeHandler} converts at the JDBC boundary.
+ * - STRING: VARCHAR(36), any generator (the original layout)
+ * - BINARY: BINARY(16), UUID generators only — 16 bytes instead of 36 per index entry
+ * - BIGINT: BIGINT, snowflake only — 8 bytes, and the index stays append-only
+ * The empty string (start of a keyset scan) encodes to a value below every real ID.
+ */
+public enum PaymentIdStorage {
+
+    STRING {
+        @Override
+        public boolean accepts(String paymentId) {
+            return true;
+        }
+
+        @Override
+        void bind(PreparedStatement ps, int i, String paymentId) throws SQLException {
+            ps.setString(i, paymentId);
+        }
+
+        @Override
+        String read(ResultSet rs, String column) throws SQLException {
+            return rs.getString(column);
+        }
+
+        @Override
+        String read(ResultSet rs, int column) throws SQLException {
+            return rs.getString(column);
+        }
+
+        @Override
+        String read(CallableStatement cs, int parameter) throws SQLException {
+            return cs.getString(parameter);
+        }
+    },
+
+    BINARY {
+        @Override
+        public boolean accepts(String paymentId) {
+            return paymentId.isEmpty() || isUuid(paymentId);
+        }
+
+        @Override
+        void bind(PreparedStatement ps, int i, String paymentId) throws SQLException {
+            ps.setBytes(i, paymentId.isEmpty() ? new byte[0] : uuidToBytes(paymentId));
+        }
+
+        @Override
+        String read(ResultSet rs, String column) throws SQLException {
+            return bytesToUuid(rs.getBytes(column));
+        }
+
+        @Override
+        String read(ResultSet rs, int column) throws SQLException {
+            return bytesToUuid(rs.getBytes(column));
+        }
+
+        @Override
+        String read(CallableStatement cs, int parameter) throws SQLException {
+            return bytesToUuid(cs.getBytes(parameter));
+        }
+    },
+
+    BIGINT {
+        @Override
+        public boolean accepts(String paymentId) {
+            return paymentId.isEmpty() || paymentId.length() == 16 && isHex(paymentId);
+        }
+
+        @Override
+        void bind(PreparedStatement ps, int i, String paymentId) throws SQLException {
+            ps.setLong(i, paymentId.isEmpty() ? -1L : Long.parseUnsignedLong(paymentId, 16));
+        }
+
+        @Override
+        String read(ResultSet rs, String column) throws SQLException {
+            long id = rs.getLong(column);
+            return rs.wasNull() ? null : SnowflakeIdGenerator.format(id);
+        }
+
+        @Override
+        String read(ResultSet rs, int column) throws SQLException {
+            long id = rs.getLong(column);
+            return rs.wasNull() ? null : SnowflakeIdGenerator.format(id);
+        }
+
+        @Override
+        String read(CallableStatement cs, int parameter) throws SQLException {
+            long id = cs.getLong(parameter);
+            return cs.wasNull() ? null : SnowflakeIdGenerator.format(id);
+        }
+    };
+
+    /**
+     * Whether the string can be stored in this layout. Lookups with IDs that cannot be stored are answered
+     * as "not found" without touching the database.
+     */
+    public abstract boolean accepts(String paymentId);
+
+    abstract void bind(PreparedStatement ps, int i, String paymentId) throws SQLException;
+
+    abstract String read(ResultSet rs, String column) throws SQLException;
+
+    abstract String read(ResultSet rs, int column) throws SQLException;
+
+    abstract String read(CallableStatement cs, int parameter) throws SQLException;
+
+    static boolean isUuid(String s) {
+        if (s.length() != 36) {
+            return false;
+        }
+        for (int i = 0; i < 36; i++) {
+            boolean dash = i == 8 || i == 13 || i == 18 || i == 23;
+            if (dash ? s.charAt(i) != '-' : Character.digit(s.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isHex(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (Character.digit(s.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] uuidToBytes(String uuid) {
+        if (!isUuid(uuid)) {
+            throw new IllegalArgumentException("Not a UUID payment id: " + uuid);
+        }
+        byte[] bytes = new byte[16];
+        int b = 0;
+        for (int i = 0; i < 36; i += 2) {
+            if (uuid.charAt(i) == '-') {
+                i--;
+                continue;
+            }
+            bytes[b++] = (byte) ((Character.digit(uuid.charAt(i), 16) << 4) | Character.digit(uuid.charAt(i + 1), 16));
+        }
+        return bytes;
+    }
+
+    private static String bytesToUuid(byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        long msb = 0;
+        long lsb = 0;
+        for (int i = 0; i < 8; i++) {
+            msb = (msb << 8) | (bytes[i] & 0xff);
+            lsb = (lsb << 8) | (bytes[i + 8] & 0xff);
+        }
+        return new UUID(msb, lsb).toString();
+    }
+}
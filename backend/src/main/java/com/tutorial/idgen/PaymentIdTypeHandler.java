@@ -0,0 +1,57 @@
+package com.tutorial.idgen;
+
+import org.apache.ibatis.type.BaseTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.TypeHandlerRegistry;
+
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * MyBatis type handler for payment_id columns: converts between the external string form and the configured
+ * {@link PaymentIdStorage}. Referenced explicitly from the payment mapper XML, since a global String handler
+ * would affect every column.
+ * A configured instance is registered on every SqlSessionFactory (the main one and each shard's) before the
+ * mapper XML is parsed; there is no no-arg constructor, so a factory that misses it fails at startup instead of
+ * silently using a default layout.
+ */
+public class PaymentIdTypeHandler extends BaseTypeHandler<String> {
+
+    private final PaymentIdStorage storage;
+
+    public PaymentIdTypeHandler(PaymentIdStorage storage) {
+        this.storage = storage;
+    }
+
+    /**
+     * Make {@code typeHandler=com.tutorial.idgen.PaymentIdTypeHandler} in the mapper XML resolve to a handler for
+     * {@code storage}. MyBatis looks such references up by handler class among the registered handlers.
+     * It is registered for JdbcType.UNDEFINED, which no column reports, so it never becomes the handler of
+     * other String columns.
+     */
+    public static void register(TypeHandlerRegistry registry, PaymentIdStorage storage) {
+        registry.register(String.class, JdbcType.UNDEFINED, new PaymentIdTypeHandler(storage));
+    }
+
+    @Override
+    public void setNonNullParameter(PreparedStatement ps, int i, String parameter, JdbcType jdbcType) throws SQLException {
+        storage.bind(ps, i, parameter);
+    }
+
+    @Override
+    public String getNullableResult(ResultSet rs, String columnName) throws SQLException {
+        return storage.read(rs, columnName);
+    }
+
+    @Override
+    public String getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+        return storage.read(rs, columnIndex);
+    }
+
+    @Override
+    public String getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+        return storage.read(cs, columnIndex);
+    }
+}
@@ -0,0 +1,23 @@
+package com.tutorial.idgen;
+
+import com.tutorial.sharding.PaymentShardKey;
+
+import java.util.UUID;
+
+/**
+ * The original scheme: a random (version 4) UUID tagged with the shard bucket.
+ * Every call goes through the shared {@link java.security.SecureRandom}, and consecutive IDs land on random
+ * pages of the payment_id index. Kept for comparison and for deployments that must not reveal creation time.
+ */
+public class RandomUuidGenerator implements PaymentIdGenerator {
+
+    @Override
+    public String nextId(Long userId) {
+        return PaymentShardKey.tag(UUID.randomUUID().toString(), userId);
+    }
+
+    @Override
+    public String name() {
+        return "uuid";
+    }
+}
@@ -0,0 +1,67 @@
+package com.tutorial.idgen;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Snowflake-style 64-bit IDs: 41 bits of milliseconds since {@link #EPOCH_MILLIS} | 10-bit node ID | 12-bit sequence.
+ * The external form is the value as 16 lowercase hex digits, so string order equals numeric order and the ID
+ * fits a BIGINT column (see {@link PaymentIdStorage#BIGINT}).
+ * 时间戳和序号打包在同一个 AtomicLong 里，用 CAS 推进：同一毫秒内序号递增，序号用完或时钟回拨时
+ * 直接借用下一毫秒（时间戳只增不减），因此既不加锁也不会发出重复 ID。
+ * 这些 ID 不携带分片桶号，分库模式下按 ID 查单会退化为扇出查询。
+ */
+public class SnowflakeIdGenerator implements PaymentIdGenerator {
+
+    /** 2024-01-01T00:00:00Z; 41 bits of milliseconds last until 2093. */
+    public static final long EPOCH_MILLIS = 1704067200000L;
+    public static final int NODE_BITS = 10;
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+
+    private static final int SEQUENCE_BITS = 12;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long nodeId;
+    /** (millis since epoch << 12) | sequence of the last issued ID. */
+    private final AtomicLong last = new AtomicLong();
+
+    public SnowflakeIdGenerator(int nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Snowflake node id must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+        }
+        this.nodeId = nodeId;
+    }
+
+    @Override
+    public String nextId(Long userId) {
+        return format(nextLong());
+    }
+
+    public long nextLong() {
+        long next;
+        while (true) {
+            long current = last.get();
+            long now = System.currentTimeMillis() - EPOCH_MILLIS;
+            // 序号溢出时 current + 1 自然进位到下一毫秒
+            next = now > (current >>> SEQUENCE_BITS) ? now << SEQUENCE_BITS : current + 1;
+            if (last.compareAndSet(current, next)) {
+                break;
+            }
+        }
+        long millis = next >>> SEQUENCE_BITS;
+        return (millis << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | (next & SEQUENCE_MASK);
+    }
+
+    @Override
+    public String name() {
+        return "snowflake";
+    }
+
+    static String format(long id) {
+        char[] chars = new char[16];
+        for (int i = 15; i >= 0; i--) {
+            chars[i] = Character.forDigit((int) (id & 0xf), 16);
+            id >>>= 4;
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,21 @@
+package com.tutorial.mapper;
+
+import com.tutorial.model.Payment;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * MyBatis mapper for the `payments_archive` table (cold, finished payments).
+ * SQL definitions are in resources/mapper/PaymentArchiveMapper.xml.
+ */
+@Mapper
+public interface PaymentArchiveMapper {
+
+    Payment findByPaymentId(@Param("paymentId") String paymentId);
+
+    List<String> findPaymentIdsAfter(@Param("afterPaymentId") String afterPaymentId, @Param("limit") int limit);
+
+    int insertBatch(@Param("payments") List<Payment> payments);
+}
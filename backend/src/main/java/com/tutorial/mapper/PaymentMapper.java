@@ -4,6 +4,7 @@ import com.tutorial.model.Payment;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -22,5 +23,21 @@ public interface PaymentMapper {
 
     int insert(Payment payment);
 
+    /**
+     * Multi-row insert of new payments (one statement per call; generated ids are not read back).
+     */
+    int insertBatch(@Param("payments") List<Payment> payments);
+
     int updateStatus(@Param("paymentId") String paymentId, @Param("status") String status);
+
+    /**
+     * The most recently created payments (newest first), used to pre-warm the status cache.
+     */
+    List<Payment> findRecent(@Param("limit") int limit);
+
+    List<String> findPaymentIdsAfter(@Param("afterPaymentId") String afterPaymentId, @Param("limit") int limit);
+
+    List<Payment> findArchivable(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+
+    int deleteByPaymentIds(@Param("paymentIds") List<String> paymentIds);
 }
@@ -0,0 +1,20 @@
+package com.tutorial.mapper;
+
+import com.tutorial.model.ShardAssignment;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * MyBatis mapper for the payment bucket → shard assignment table.
+ * Only buckets that have been moved (or are being moved) have a row; all others use the default layout.
+ * SQL definitions are in resources/mapper/ShardMapMapper.xml.
+ */
+@Mapper
+public interface ShardMapMapper {
+
+    List<ShardAssignment> findAll();
+
+    int upsert(@Param("bucket") int bucket, @Param("shard") int shard, @Param("targetShard") Integer targetShard);
+}
@@ -4,6 +4,8 @@ import com.tutorial.model.User;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.List;
+
 /**
  * MyBatis mapper interface for User entity CRUD operations.
  * SQL definitions are in resources/mapper/UserMapper.xml.
@@ -17,6 +19,17 @@ public interface UserMapper {
 
     User findByEmail(@Param("email") String email);
 
+    /**
+     * Users holding the given username or email (at most two rows), in one query.
+     * Only id, username and email are populated. Either argument may be null.
+     */
+    List<User> findByUsernameOrEmail(@Param("username") String username, @Param("email") String email);
+
+    /**
+     * Keyset page of (id, username, email) ordered by id, for rebuilding the availability Bloom filters.
+     */
+    List<User> findIdentitiesAfter(@Param("afterId") long afterId, @Param("limit") int limit);
+
     int insert(User user);
 
     int update(User user);
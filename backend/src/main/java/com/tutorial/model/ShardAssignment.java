@@ -0,0 +1,19 @@
+package com.tutorial.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Row of the `payment_shard_map` table: which shard owns a payment bucket,
+ * and which shard it is being moved to while a resharding is in progress.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShardAssignment {
+
+    private Integer bucket;
+    private Integer shard;
+    private Integer targetShard;
+}
@@ -0,0 +1,31 @@
+package com.tutorial.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A create / update / delete of one stock, published to the `stock-events` topic
+ * and pushed to live feed subscribers.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockChange {
+
+    public static final String UPSERT = "UPSERT";
+    public static final String DELETE = "DELETE";
+
+    private String type;
+    private Long id;
+
+    /** The stock after the change; null for deletes. */
+    private Stock stock;
+
+    /** The stock as last known before the change (null if unknown), so filtered subscribers can see it leave. */
+    private Stock previous;
+
+    private long timestamp;
+}
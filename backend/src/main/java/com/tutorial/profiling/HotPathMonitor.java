@@ -0,0 +1,240 @@
+package com.tutorial.profiling;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 实时热点汇总：在一个限定时长的窗口内用 JFR RecordingStream 在进程内消费事件，聚合出
+ * - 分配最多的位置（按采样权重累计字节数，记录栈顶帧和第一个业务代码帧）；
+ * - 各 Mapper 语句的调用次数 / 平均 / 最大耗时，以及 PaymentConsumer 的处理耗时；
+ * - 窗口内最慢的若干次调用。
+ * 窗口结束后自动关闭事件流，不会一直占用采样开销。
+ */
+@Service
+public class HotPathMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(HotPathMonitor.class);
+    private static final String ALLOCATION_SAMPLE = "jdk.ObjectAllocationSample";
+    private static final String APP_PACKAGE = "com.tutorial.";
+
+    private final int top;
+    private final Duration maxWindow;
+
+    private volatile RecordingStream stream;
+    private volatile Instant startedAt;
+    private volatile Instant endsAt;
+    private final Map<String, AllocationSite> allocations = new ConcurrentHashMap<>();
+    private final Map<String, CallStats> calls = new ConcurrentHashMap<>();
+    private final PriorityQueue<SlowCall> slowest = new PriorityQueue<>(Comparator.comparingLong(SlowCall::nanos));
+
+    public HotPathMonitor(@Value("${app.profiling.live.top:20}") int top,
+            @Value("${app.profiling.live.max-window:10m}") Duration maxWindow) {
+        this.top = top;
+        this.maxWindow = maxWindow;
+    }
+
+    /**
+     * Start collecting for {@code window} (capped at the configured maximum); previous results are discarded.
+     *
+     * @throws IllegalStateException if a window is already running
+     */
+    public synchronized Map<String, Object> start(Duration window) {
+        if (stream != null) {
+            throw new IllegalStateException("Live profiling is already running until " + endsAt);
+        }
+        Duration effective = window == null || window.compareTo(maxWindow) > 0 ? maxWindow : window;
+        allocations.clear();
+        calls.clear();
+        synchronized (slowest) {
+            slowest.clear();
+        }
+
+        RecordingStream rs = new RecordingStream();
+        rs.enable(ALLOCATION_SAMPLE).with("throttle", "200/s").withStackTrace();
+        rs.enable(MapperCallEvent.NAME).withThreshold(Duration.ZERO);
+        rs.enable(PaymentConsumedEvent.NAME).withThreshold(Duration.ZERO);
+        rs.onEvent(ALLOCATION_SAMPLE, this::onAllocation);
+        rs.onEvent(MapperCallEvent.NAME, e -> onCall("mapper " + e.getString("statement"), null, e));
+        rs.onEvent(PaymentConsumedEvent.NAME,
+                e -> onCall("PaymentConsumer " + e.getString("outcome"), e.getString("paymentId"), e));
+        rs.startAsync();
+
+        stream = rs;
+        startedAt = Instant.now();
+        endsAt = startedAt.plus(effective);
+        CompletableFuture.delayedExecutor(effective.toMillis(), TimeUnit.MILLISECONDS).execute(() -> stop(rs));
+        log.info("Live profiling started for {}", effective);
+        return summary();
+    }
+
+    public synchronized void stop() {
+        if (stream != null) {
+            stop(stream);
+        }
+    }
+
+    private synchronized void stop(RecordingStream rs) {
+        // 只关闭本窗口自己的流：提前 stop 后又开始了新窗口时，旧窗口的定时器不能把新窗口关掉
+        if (stream != rs) {
+            return;
+        }
+        rs.close();
+        stream = null;
+        endsAt = Instant.now();
+        log.info("Live profiling stopped");
+    }
+
+    public Map<String, Object> summary() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("running", stream != null);
+        result.put("startedAt", startedAt);
+        result.put("endsAt", endsAt);
+
+        // 先取快照再排序：事件线程仍在累加，直接按实时值排序会违反比较器约定
+        result.put("topAllocationSites", allocations.values().stream()
+                .map(AllocationSite::toMap)
+                .sorted(Comparator.comparingLong((Map<String, Object> m) -> (Long) m.get("sampledBytes")).reversed())
+                .limit(top)
+                .toList());
+        result.put("calls", calls.values().stream()
+                .map(CallStats::toMap)
+                .sorted(Comparator.comparingDouble((Map<String, Object> m) -> (Double) m.get("totalMs")).reversed())
+                .limit(top)
+                .toList());
+
+        List<SlowCall> slow;
+        synchronized (slowest) {
+            slow = new ArrayList<>(slowest);
+        }
+        slow.sort(Comparator.comparingLong(SlowCall::nanos).reversed());
+        result.put("slowestCalls", slow.stream().map(SlowCall::toMap).toList());
+        return result;
+    }
+
+    private void onAllocation(RecordedEvent event) {
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        if (stackTrace == null || stackTrace.getFrames().isEmpty()) {
+            return;
+        }
+        List<RecordedFrame> frames = stackTrace.getFrames();
+        String topFrame = describe(frames.get(0));
+        String appFrame = frames.stream()
+                .filter(frame -> frame.isJavaFrame() && frame.getMethod().getType().getName().startsWith(APP_PACKAGE))
+                .findFirst()
+                .map(HotPathMonitor::describe)
+                .orElse(null);
+        String type = event.getClass("objectClass").getName();
+        String key = type + "|" + topFrame + "|" + appFrame;
+        allocations.computeIfAbsent(key, k -> new AllocationSite(type, topFrame, appFrame))
+                .add(event.getLong("weight"));
+    }
+
+    private void onCall(String name, String detail, RecordedEvent event) {
+        long nanos = event.getDuration().toNanos();
+        calls.computeIfAbsent(name, CallStats::new).add(nanos);
+        synchronized (slowest) {
+            if (slowest.size() < top) {
+                slowest.add(new SlowCall(name, detail, nanos, event.getStartTime()));
+            } else if (nanos > slowest.peek().nanos()) {
+                slowest.poll();
+                slowest.add(new SlowCall(name, detail, nanos, event.getStartTime()));
+            }
+        }
+    }
+
+    private static String describe(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 10_000.0) / 100.0;
+    }
+
+    private static final class AllocationSite {
+
+        private final String type;
+        private final String topFrame;
+        private final String appFrame;
+        private long bytes;
+        private long samples;
+
+        AllocationSite(String type, String topFrame, String appFrame) {
+            this.type = type;
+            this.topFrame = topFrame;
+            this.appFrame = appFrame;
+        }
+
+        synchronized void add(long weight) {
+            bytes += weight;
+            samples++;
+        }
+
+        synchronized Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("type", type);
+            map.put("site", topFrame);
+            map.put("appFrame", appFrame);
+            map.put("sampledBytes", bytes);
+            map.put("samples", samples);
+            return map;
+        }
+    }
+
+    private static final class CallStats {
+
+        private final String name;
+        private long count;
+        private long totalNanos;
+        private long maxNanos;
+
+        CallStats(String name) {
+            this.name = name;
+        }
+
+        synchronized void add(long nanos) {
+            count++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+        }
+
+        synchronized Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("name", name);
+            map.put("count", count);
+            map.put("totalMs", millis(totalNanos));
+            map.put("avgMs", count == 0 ? 0.0 : millis(totalNanos / count));
+            map.put("maxMs", millis(maxNanos));
+            return map;
+        }
+    }
+
+    private record SlowCall(String name, String detail, long nanos, Instant at) {
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("name", name);
+            map.put("detail", detail);
+            map.put("ms", millis(nanos));
+            map.put("at", at);
+            return map;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.tutorial.profiling;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按需启动的 Java Flight Recorder 录制（生产环境排查延迟毛刺用，无需重启或挂 Profiler）。
+ * - 每次录制使用一个 {@link ProfilingPreset}，带最长时长，到时 JFR 自动停止并写出 .jfr 文件；
+ * - 同时运行的录制数有上限，录制文件超过保留期后由定时任务清理；
+ * - 录制中也可以下载：先把已有数据 dump 成快照文件再返回。
+ */
+@Service
+public class JfrRecordingService {
+
+    private static final Logger log = LoggerFactory.getLogger(JfrRecordingService.class);
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")
+            .withZone(ZoneOffset.UTC);
+
+    private final Path directory;
+    private final Duration maxDuration;
+    private final int maxActive;
+    private final Duration retention;
+    private final Map<Long, Session> sessions = new ConcurrentHashMap<>();
+
+    public JfrRecordingService(@Value("${app.profiling.directory:${java.io.tmpdir}/codeforge-jfr}") Path directory,
+            @Value("${app.profiling.max-duration:10m}") Duration maxDuration,
+            @Value("${app.profiling.max-active:2}") int maxActive,
+            @Value("${app.profiling.retention:1h}") Duration retention) {
+        this.directory = directory;
+        this.maxDuration = maxDuration;
+        this.maxActive = maxActive;
+        this.retention = retention;
+    }
+
+    /**
+     * Start a recording that stops by itself after {@code duration} (capped at the configured maximum).
+     *
+     * @throws IllegalStateException if too many recordings are already running
+     */
+    public synchronized Map<String, Object> start(ProfilingPreset preset, Duration duration) {
+        long active = sessions.values().stream()
+                .filter(s -> s.recording().getState() == RecordingState.RUNNING)
+                .count();
+        if (active >= maxActive) {
+            throw new IllegalStateException("Already running " + active + " recordings (max " + maxActive + ")");
+        }
+        Duration effective = duration == null || duration.compareTo(maxDuration) > 0 ? maxDuration : duration;
+
+        Map<String, String> settings;
+        try {
+            settings = new HashMap<>(Configuration.getConfiguration("default").getSettings());
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot load the default JFR configuration", e);
+        }
+        settings.putAll(preset.settings());
+
+        Recording recording = new Recording(settings);
+        // 带上录制 ID：同一秒内启动的两个同预设录制不会写到同一个文件
+        String name = "codeforge-" + preset.name().toLowerCase(Locale.ROOT) + "-" + FILE_TIME.format(Instant.now())
+                + "-" + recording.getId();
+        Path file = directory.resolve(name + ".jfr");
+        recording.setName(name);
+        recording.setToDisk(true);
+        recording.setDuration(effective);
+        try {
+            Files.createDirectories(directory);
+            recording.setDestination(file);
+        } catch (IOException e) {
+            recording.close();
+            throw new UncheckedIOException(e);
+        }
+        recording.start();
+
+        Session session = new Session(recording, preset, file);
+        sessions.put(recording.getId(), session);
+        log.info("JFR recording {} started: preset={}, duration={}", recording.getId(), preset, effective);
+        return describe(session);
+    }
+
+    public Optional<Map<String, Object>> stop(long id) {
+        Session session = sessions.get(id);
+        if (session == null) {
+            return Optional.empty();
+        }
+        if (session.recording().getState() == RecordingState.RUNNING) {
+            session.recording().stop();
+            log.info("JFR recording {} stopped", id);
+        }
+        return Optional.of(describe(session));
+    }
+
+    public List<Map<String, Object>> list() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        sessions.values().forEach(session -> result.add(describe(session)));
+        return result;
+    }
+
+    /**
+     * The .jfr file of a recording. For a running recording this is a snapshot of the data recorded so far.
+     */
+    public Optional<Path> file(long id) {
+        Session session = sessions.get(id);
+        if (session == null) {
+            return Optional.empty();
+        }
+        try {
+            if (session.recording().getState() == RecordingState.RUNNING) {
+                Path snapshot = directory.resolve(session.recording().getName() + "-snapshot.jfr");
+                session.recording().dump(snapshot);
+                return Optional.of(snapshot);
+            }
+            return Files.exists(session.file()) ? Optional.of(session.file()) : Optional.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public boolean delete(long id) {
+        Session session = sessions.remove(id);
+        if (session == null) {
+            return false;
+        }
+        discard(session);
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "${app.profiling.cleanup-interval-ms:600000}")
+    public void cleanup() {
+        Instant cutoff = Instant.now().minus(retention);
+        sessions.values().removeIf(session -> {
+            Instant stopped = session.recording().getStopTime();
+            if (stopped != null && stopped.isBefore(cutoff)) {
+                discard(session);
+                return true;
+            }
+            return false;
+        });
+    }
+
+    @PreDestroy
+    public void closeAll() {
+        sessions.values().forEach(session -> session.recording().close());
+    }
+
+    private void discard(Session session) {
+        session.recording().close();
+        try {
+            Files.deleteIfExists(session.file());
+            Files.deleteIfExists(directory.resolve(session.recording().getName() + "-snapshot.jfr"));
+        } catch (IOException e) {
+            log.warn("Failed to delete JFR file {}: {}", session.file(), e.getMessage());
+        }
+    }
+
+    private Map<String, Object> describe(Session session) {
+        Recording recording = session.recording();
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("id", recording.getId());
+        info.put("name", recording.getName());
+        info.put("preset", session.preset());
+        info.put("state", recording.getState());
+        info.put("startTime", recording.getStartTime());
+        info.put("stopTime", recording.getStopTime());
+        info.put("duration", recording.getDuration());
+        info.put("sizeBytes", recording.getSize());
+        return info;
+    }
+
+    private record Session(Recording recording, ProfilingPreset preset, Path file) {
+    }
+}
@@ -0,0 +1,28 @@
+package com.tutorial.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for one MyBatis mapper call, emitted by {@link MapperTimingInterceptor}.
+ * Disabled unless a recording (or the live monitor) enables it, in which case it costs one timestamp per call.
+ */
+@Name(MapperCallEvent.NAME)
+@Label("Mapper Call")
+@Category({"CodeForge", "MyBatis"})
+@Description("Execution of a MyBatis mapped statement")
+@StackTrace(false)
+public class MapperCallEvent extends Event {
+
+    public static final String NAME = "com.tutorial.MapperCall";
+
+    @Label("Statement")
+    public String statement;
+
+    @Label("Command")
+    public String command;
+}
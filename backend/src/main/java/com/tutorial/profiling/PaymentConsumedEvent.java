@@ -0,0 +1,27 @@
+package com.tutorial.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event spanning the handling of one payment event by {@code PaymentConsumer}.
+ */
+@Name(PaymentConsumedEvent.NAME)
+@Label("Payment Consumed")
+@Category({"CodeForge", "Kafka"})
+@Description("Processing of one payment-events message")
+@StackTrace(false)
+public class PaymentConsumedEvent extends Event {
+
+    public static final String NAME = "com.tutorial.PaymentConsumed";
+
+    @Label("Payment ID")
+    public String paymentId;
+
+    @Label("Outcome")
+    public String outcome;
+}
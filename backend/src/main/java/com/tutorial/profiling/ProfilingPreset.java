@@ -0,0 +1,69 @@
+package com.tutorial.profiling;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Recording presets for the profiling admin API. Each preset starts from the JDK's low-overhead "default"
+ * settings and turns up the events needed for one kind of investigation; the application's own
+ * mapper / consumer events are always included.
+ */
+public enum ProfilingPreset {
+
+    CPU("Method sampling every 10 ms (Java and native)", Map.of(
+            "jdk.ExecutionSample#enabled", "true",
+            "jdk.ExecutionSample#period", "10 ms",
+            "jdk.NativeMethodSample#enabled", "true",
+            "jdk.NativeMethodSample#period", "20 ms")),
+
+    ALLOCATION("Sampled allocation sites and surviving objects (leak candidates)", Map.of(
+            "jdk.ObjectAllocationSample#enabled", "true",
+            "jdk.ObjectAllocationSample#throttle", "300/s",
+            "jdk.ObjectAllocationSample#stackTrace", "true",
+            "jdk.OldObjectSample#enabled", "true",
+            "jdk.OldObjectSample#cutoff", "0 ns",
+            "jdk.GarbageCollection#enabled", "true")),
+
+    LOCKS("Monitor contention, waits and parks longer than 5 ms", Map.of(
+            "jdk.JavaMonitorEnter#enabled", "true",
+            "jdk.JavaMonitorEnter#threshold", "5 ms",
+            "jdk.JavaMonitorWait#enabled", "true",
+            "jdk.JavaMonitorWait#threshold", "5 ms",
+            "jdk.ThreadPark#enabled", "true",
+            "jdk.ThreadPark#threshold", "5 ms")),
+
+    SOCKET_IO("Socket reads and writes longer than 5 ms (MySQL, Redis, Kafka)", Map.of(
+            "jdk.SocketRead#enabled", "true",
+            "jdk.SocketRead#threshold", "5 ms",
+            "jdk.SocketRead#stackTrace", "true",
+            "jdk.SocketWrite#enabled", "true",
+            "jdk.SocketWrite#threshold", "5 ms",
+            "jdk.SocketWrite#stackTrace", "true"));
+
+    private static final Map<String, String> APPLICATION_EVENTS = Map.of(
+            MapperCallEvent.NAME + "#enabled", "true",
+            MapperCallEvent.NAME + "#threshold", "1 ms",
+            PaymentConsumedEvent.NAME + "#enabled", "true",
+            PaymentConsumedEvent.NAME + "#threshold", "0 ms");
+
+    private final String description;
+    private final Map<String, String> settings;
+
+    ProfilingPreset(String description, Map<String, String> settings) {
+        this.description = description;
+        this.settings = settings;
+    }
+
+    public String description() {
+        return description;
+    }
+
+    /**
+     * Settings to apply on top of the "default" JFR configuration.
+     */
+    public Map<String, String> settings() {
+        Map<String, String> all = new HashMap<>(settings);
+        all.putAll(APPLICATION_EVENTS);
+        return all;
+    }
+}
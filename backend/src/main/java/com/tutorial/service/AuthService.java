@@ -3,6 +3,7 @@ package com.tutorial.service;
 import com.tutorial.mapper.UserMapper;
 import com.tutorial.model.User;
 import com.tutorial.util.JwtUtil;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
@@ -20,11 +21,14 @@ public class AuthService {
     private final UserMapper userMapper;
     private final PasswordEncoder passwordEncoder;
     private final JwtUtil jwtUtil;
+    private final UserAvailabilityService userAvailabilityService;
 
-    public AuthService(UserMapper userMapper, PasswordEncoder passwordEncoder, JwtUtil jwtUtil) {
+    public AuthService(UserMapper userMapper, PasswordEncoder passwordEncoder, JwtUtil jwtUtil,
+            UserAvailabilityService userAvailabilityService) {
         this.userMapper = userMapper;
         this.passwordEncoder = passwordEncoder;
         this.jwtUtil = jwtUtil;
+        this.userAvailabilityService = userAvailabilityService;
     }
 
     /**
@@ -33,14 +37,13 @@ public class AuthService {
      * @throws IllegalArgumentException if username or email already exists
      */
     public Map<String, Object> register(String username, String email, String password) {
-        // 【第一步】防御性校验：检查数据库中是否已存在被注册的用户名（保持数据唯一性）
-        if (userMapper.findByUsername(username) != null) {
-            throw new IllegalArgumentException("Username already exists");
-        }
-        // 【第二步】校验防重：确保该邮箱尚未与系统内的其它账号绑定
-        if (userMapper.findByEmail(email) != null) {
-            throw new IllegalArgumentException("Email already exists");
-        }
+        // 统一去掉首尾空白后再用于预检、入库和签发令牌：NO PAD 排序规则下 "alice" 与 "alice " 是两个不同的唯一键，
+        // 而可用性过滤器按去空白后的值登记，两边口径必须一致
+        username = username == null ? null : username.trim();
+        email = email == null ? null : email.trim();
+
+        // 【第一步】快速预检：缓存 + 布隆过滤器，不确定时才合并成一次查询，明显冲突的请求不必跑 BCrypt
+        rejectTaken(userAvailabilityService.check(username, email));
 
         User user = User.builder()
                 .username(username)
@@ -49,9 +52,16 @@ public class AuthService {
                 .role("USER")
                 .build();
 
-        userMapper.insert(user);
+        // 【第二步】最终裁决交给 users 表上的唯一索引：预检与插入之间被别人抢注时，这里会抛 DuplicateKeyException
+        try {
+            userMapper.insert(user);
+        } catch (DuplicateKeyException e) {
+            rejectTaken(userAvailabilityService.lookup(username, email));
+            throw new IllegalArgumentException("Username or email already exists");
+        }
+        userAvailabilityService.registered(username, email);
 
-        String token = jwtUtil.generateToken(username, "USER");
+        String token = jwtUtil.generateToken(username, user.getId(), "USER");
 
         Map<String, Object> result = new HashMap<>();
         result.put("userId", user.getId());
@@ -61,6 +71,15 @@ public class AuthService {
         return result;
     }
 
+    private static void rejectTaken(UserAvailabilityService.Availability availability) {
+        if (Boolean.FALSE.equals(availability.usernameAvailable())) {
+            throw new IllegalArgumentException("Username already exists");
+        }
+        if (Boolean.FALSE.equals(availability.emailAvailable())) {
+            throw new IllegalArgumentException("Email already exists");
+        }
+    }
+
     /**
      * Authenticate a user by username and password. Returns JWT token on success.
      *
@@ -76,7 +95,7 @@ public class AuthService {
             throw new IllegalArgumentException("Invalid username or password");
         }
 
-        String token = jwtUtil.generateToken(username, user.getRole());
+        String token = jwtUtil.generateToken(username, user.getId(), user.getRole());
 
         Map<String, Object> result = new HashMap<>();
         result.put("userId", user.getId());
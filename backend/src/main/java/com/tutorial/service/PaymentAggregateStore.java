@@ -0,0 +1,615 @@
+package com.tutorial.service;
+
+import com.tutorial.config.KafkaConfig;
+import com.tutorial.model.Payment;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 按用户 / 币种的支付汇总（今天、本月……），由 payment-events（提交）和 payment-status-events（终态）增量累加，
+ * 不再对 payments 表做 GROUP BY。
+ * - 窗口：按 Kafka 消息时间落到日（yyyy-MM-dd）和月（yyyy-MM）窗口，每个窗口同时记“该用户”和“所有用户”两份；
+ *   窗口内按币种、再按 SUBMITTED / COMPLETED / FAILED 分别记笔数和金额。查询是一次哈希查找，与数据量无关。
+ * - 去重：同一条消息被重复投递由“每个分区下一条要读的 offset”挡掉；重新发布的消息（重试、死信重放）
+ *   由两代轮换的布隆过滤器挡掉，每代覆盖 dedupe-retention 的一半，或装满 dedupe-expected-events 个键时提前轮换
+ *   （流量超出容量时去重窗口变短，但误判率不会升高）。内存和检查点大小只取决于配置的容量，不随支付量增长；
+ *   代价是约 dedupe-fpp 比例的真实事件被误判为重复而漏计（payment.aggregates.duplicates 含这部分）。
+ * - 检查点：状态与 offset 一起定期写入本地文件（先写临时文件再原子替换）。持锁时只复制上次以来变化的窗口
+ *   和过滤器位图，序列化与写盘在锁外进行，不会卡住消费线程。
+ *   重启时先加载文件，再从记录的 offset 继续消费，检查点之后的消息重新累加一次，结果不多不少。
+ * - 重建：没有检查点（或文件损坏）时从主题最早的消息重建。若主题的保留期已删掉了部分消息，
+ *   最早那条消息之前开始的窗口不完整，查询结果里 complete=false。
+ * 每个节点各自维护一份完整的状态（见 PaymentAggregateConsumer），所以任一节点都能直接回答查询。
+ * 指标：payment.aggregates.windows、payment.aggregates.duplicates、payment.aggregates.skipped（重复投递的旧 offset）。
+ */
+@Service
+public class PaymentAggregateStore {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentAggregateStore.class);
+    private static final String CHECKPOINT_FILE = "payment-aggregates.bin";
+    private static final int CHECKPOINT_VERSION = 3;
+
+    public enum Granularity {
+        DAY, MONTH;
+
+        public static Granularity parse(String value) {
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("window must be day or month");
+            }
+        }
+    }
+
+    public enum Kind {
+        SUBMITTED, COMPLETED, FAILED
+    }
+
+    private final Path directory;
+    private final ZoneId zone;
+    private final int retainDays;
+    private final int retainMonths;
+    private final long rotateMillis;
+    private final long dedupeExpected;
+    private final double dedupeFpp;
+    private final Counter duplicates;
+    private final Counter skipped;
+
+    // 以下字段由 this 保护；消费线程只有一个，锁只在它和查询 / 检查点之间竞争
+    private final Map<WindowKey, Map<String, Totals>> windows = new HashMap<>();
+    private final Map<TopicPartition, Long> offsets = new HashMap<>();
+    private final Set<WindowKey> changedWindows = new HashSet<>();
+    private DedupeFilter currentFilter;
+    private DedupeFilter previousFilter;
+    private long asOf;
+    // 重建时最早可读消息的时间：早于它开始的窗口不完整；0 表示数据完整
+    private long coverageStart;
+    private LocalDate prunedOn;
+    private boolean dirty;
+
+    // 检查点线程独占：已持久化的窗口镜像，每次只把变化的窗口合并进来
+    private final Object checkpointLock = new Object();
+    private final Map<WindowKey, Map<String, Totals>> persisted = new HashMap<>();
+
+    public PaymentAggregateStore(MeterRegistry meterRegistry,
+            @Value("${app.payments.aggregates.directory:${java.io.tmpdir}/codeforge-aggregates}") Path directory,
+            @Value("${app.payments.aggregates.zone:UTC}") ZoneId zone,
+            @Value("${app.payments.aggregates.retain-days:62}") int retainDays,
+            @Value("${app.payments.aggregates.retain-months:24}") int retainMonths,
+            @Value("${app.payments.aggregates.dedupe-retention:14d}") Duration dedupeRetention,
+            @Value("${app.payments.aggregates.dedupe-expected-events:2000000}") long dedupeExpected,
+            @Value("${app.payments.aggregates.dedupe-fpp:0.000001}") double dedupeFpp) {
+        this.directory = directory;
+        this.zone = zone;
+        this.retainDays = retainDays;
+        this.retainMonths = retainMonths;
+        this.rotateMillis = Math.max(1, dedupeRetention.toMillis() / 2);
+        this.dedupeExpected = dedupeExpected;
+        this.dedupeFpp = dedupeFpp;
+        this.duplicates = meterRegistry.counter("payment.aggregates.duplicates");
+        this.skipped = meterRegistry.counter("payment.aggregates.skipped");
+        Gauge.builder("payment.aggregates.windows", this, PaymentAggregateStore::windowCount)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Apply one record from payment-events or payment-status-events.
+     * Records below the stored offset of their partition are already in the state and are skipped.
+     */
+    public synchronized void apply(ConsumerRecord<String, String> record) {
+        TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+        Long next = offsets.get(partition);
+        if (next != null && record.offset() < next) {
+            skipped.increment();
+            return;
+        }
+        if (next == null && record.offset() > 0) {
+            // 从头读却不是从 0 开始：更早的消息已被保留期删除
+            coverageStart = Math.max(coverageStart, record.timestamp());
+        }
+        offsets.put(partition, record.offset() + 1);
+        dirty = true;
+
+        Payment payment;
+        try {
+            payment = Payment.fromJson(record.value());
+        } catch (RuntimeException e) {
+            log.warn("Skipping malformed payment event at {}@{}: {}", partition, record.offset(), e.getMessage());
+            return;
+        }
+        Kind kind = kindOf(record.topic(), payment.getStatus());
+        if (kind == null || payment.getPaymentId() == null) {
+            return;
+        }
+        long timestamp = record.timestamp();
+        asOf = Math.max(asOf, timestamp);
+
+        String dedupeKey = payment.getPaymentId() + '#' + kind.name();
+        if (isDuplicate(dedupeKey, timestamp)) {
+            duplicates.increment();
+            return;
+        }
+
+        LocalDate day = Instant.ofEpochMilli(timestamp).atZone(zone).toLocalDate();
+        String currency = payment.getCurrency() == null ? "USD" : payment.getCurrency();
+        BigDecimal amount = payment.getAmount() == null ? BigDecimal.ZERO : payment.getAmount();
+        if (payment.getUserId() != null) {
+            add(payment.getUserId(), day, currency, kind, amount);
+        }
+        add(null, day, currency, kind, amount);
+    }
+
+    /**
+     * Totals of one window, per currency then per kind. {@code userId == null} means all users.
+     * {@code period} is yyyy-MM-dd (DAY) or yyyy-MM (MONTH); null means the current one.
+     */
+    public Window totals(Long userId, Granularity granularity, String period) {
+        String resolved = resolvePeriod(granularity, period);
+        Map<String, Map<Kind, Sum>> byCurrency = new TreeMap<>();
+        long currentAsOf;
+        long currentCoverage;
+        synchronized (this) {
+            Map<String, Totals> totals = windows.get(new WindowKey(userId, granularity, resolved));
+            if (totals != null) {
+                totals.forEach((currency, t) -> byCurrency.put(currency, t.toSums()));
+            }
+            currentAsOf = asOf;
+            currentCoverage = coverageStart;
+        }
+        boolean complete = currentCoverage == 0 || periodStart(granularity, resolved) >= currentCoverage;
+        return new Window(userId, granularity, resolved, complete,
+                currentAsOf == 0 ? null : Instant.ofEpochMilli(currentAsOf), byCurrency);
+    }
+
+    /**
+     * The next offset to read for a partition, or null if nothing from it has been applied yet.
+     */
+    public synchronized Long nextOffset(TopicPartition partition) {
+        return offsets.get(partition);
+    }
+
+    public synchronized int windowCount() {
+        return windows.size();
+    }
+
+    @PostConstruct
+    public void restore() {
+        Path file = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(file)) {
+            log.info("No payment aggregate checkpoint at {}, rebuilding from the topics", file);
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            int version = in.readInt();
+            if (version != CHECKPOINT_VERSION) {
+                log.warn("Ignoring payment aggregate checkpoint with version {}", version);
+                return;
+            }
+            synchronized (this) {
+                asOf = in.readLong();
+                coverageStart = in.readLong();
+                int offsetCount = in.readInt();
+                for (int i = 0; i < offsetCount; i++) {
+                    offsets.put(new TopicPartition(in.readUTF(), in.readInt()), in.readLong());
+                }
+                int rowCount = in.readInt();
+                for (int i = 0; i < rowCount; i++) {
+                    Long userId = in.readBoolean() ? in.readLong() : null;
+                    WindowKey key = new WindowKey(userId, Granularity.values()[in.readByte()], in.readUTF());
+                    String currency = in.readUTF();
+                    Totals totals = Totals.read(in);
+                    windows.computeIfAbsent(key, k -> new HashMap<>()).put(currency, totals);
+                }
+                currentFilter = DedupeFilter.read(in);
+                previousFilter = DedupeFilter.read(in);
+                synchronized (checkpointLock) {
+                    windows.forEach((key, byCurrency) -> persisted.put(key, copy(byCurrency)));
+                }
+            }
+            log.info("Restored payment aggregates: {} windows, {} partitions, as of {}",
+                    windowCount(), offsets.size(), Instant.ofEpochMilli(asOf));
+        } catch (IOException | RuntimeException e) {
+            // 检查点不可用时丢弃已加载的部分，从主题重建
+            log.warn("Unreadable payment aggregate checkpoint {}, rebuilding from the topics: {}", file, e.getMessage());
+            synchronized (this) {
+                offsets.clear();
+                windows.clear();
+                currentFilter = null;
+                previousFilter = null;
+                asOf = 0;
+                coverageStart = 0;
+            }
+            synchronized (checkpointLock) {
+                persisted.clear();
+            }
+        }
+    }
+
+    /**
+     * Write state and offsets together, so a restart resumes exactly where the state left off.
+     * Under the store lock only the windows changed since the last checkpoint and the filter bits are copied.
+     */
+    @Scheduled(fixedDelayString = "${app.payments.aggregates.checkpoint-interval:PT30S}")
+    public void checkpoint() {
+        synchronized (checkpointLock) {
+            Map<WindowKey, Map<String, Totals>> changes = new HashMap<>();
+            Map<TopicPartition, Long> offsetCopy;
+            DedupeFilter current;
+            DedupeFilter previous;
+            long asOfCopy;
+            long coverageCopy;
+            synchronized (this) {
+                if (!dirty) {
+                    return;
+                }
+                prune();
+                for (WindowKey key : changedWindows) {
+                    Map<String, Totals> byCurrency = windows.get(key);
+                    // null 表示已被清理
+                    changes.put(key, byCurrency == null ? null : copy(byCurrency));
+                }
+                changedWindows.clear();
+                offsetCopy = new HashMap<>(offsets);
+                current = currentFilter == null ? null : currentFilter.copy();
+                previous = previousFilter == null ? null : previousFilter.copy();
+                asOfCopy = asOf;
+                coverageCopy = coverageStart;
+                dirty = false;
+            }
+            changes.forEach((key, byCurrency) -> {
+                if (byCurrency == null) {
+                    persisted.remove(key);
+                } else {
+                    persisted.put(key, byCurrency);
+                }
+            });
+
+            Path file = directory.resolve(CHECKPOINT_FILE);
+            Path temp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+            try {
+                Files.createDirectories(directory);
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                    write(out, asOfCopy, coverageCopy, offsetCopy, current, previous);
+                }
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                log.warn("Failed to write payment aggregate checkpoint {}: {}", file, e.getMessage());
+                // 变化已合并进 persisted，下次重写整个文件即可
+                synchronized (this) {
+                    dirty = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Listener containers stop before this runs, so the final checkpoint covers everything consumed.
+     */
+    @PreDestroy
+    public void shutdown() {
+        checkpoint();
+    }
+
+    private void write(DataOutputStream out, long asOfCopy, long coverageCopy, Map<TopicPartition, Long> offsetCopy,
+            DedupeFilter current, DedupeFilter previous) throws IOException {
+        out.writeInt(CHECKPOINT_VERSION);
+        out.writeLong(asOfCopy);
+        out.writeLong(coverageCopy);
+        out.writeInt(offsetCopy.size());
+        for (Map.Entry<TopicPartition, Long> entry : offsetCopy.entrySet()) {
+            out.writeUTF(entry.getKey().topic());
+            out.writeInt(entry.getKey().partition());
+            out.writeLong(entry.getValue());
+        }
+        int rows = 0;
+        for (Map<String, Totals> byCurrency : persisted.values()) {
+            rows += byCurrency.size();
+        }
+        out.writeInt(rows);
+        for (Map.Entry<WindowKey, Map<String, Totals>> entry : persisted.entrySet()) {
+            WindowKey key = entry.getKey();
+            for (Map.Entry<String, Totals> totals : entry.getValue().entrySet()) {
+                out.writeBoolean(key.userId() != null);
+                if (key.userId() != null) {
+                    out.writeLong(key.userId());
+                }
+                out.writeByte(key.granularity().ordinal());
+                out.writeUTF(key.period());
+                out.writeUTF(totals.getKey());
+                totals.getValue().write(out);
+            }
+        }
+        DedupeFilter.write(out, current);
+        DedupeFilter.write(out, previous);
+    }
+
+    private boolean isDuplicate(String key, long timestamp) {
+        if (currentFilter == null) {
+            currentFilter = DedupeFilter.create(dedupeExpected, dedupeFpp, timestamp);
+        } else if (timestamp - currentFilter.startedAt >= rotateMillis || currentFilter.inserted >= dedupeExpected) {
+            // 轮换：上一代再保留一代，所以任何事件至少在一代的时间内都能被识别为重复。
+            // 按数量提前轮换保证每代不超过设计容量；超容后继续写入会让误判率迅速升高，把真实事件当成重复丢掉
+            if (timestamp - currentFilter.startedAt < rotateMillis) {
+                log.warn("Payment dedupe filter reached {} keys after {}, rotating early; duplicates are only caught "
+                        + "within this span (raise dedupe-expected-events)", dedupeExpected,
+                        Duration.ofMillis(timestamp - currentFilter.startedAt));
+            }
+            previousFilter = currentFilter;
+            currentFilter = DedupeFilter.create(dedupeExpected, dedupeFpp, timestamp);
+        }
+        if (currentFilter.mightContain(key) || (previousFilter != null && previousFilter.mightContain(key))) {
+            return true;
+        }
+        currentFilter.put(key);
+        return false;
+    }
+
+    private static Kind kindOf(String topic, String status) {
+        if (KafkaConfig.PAYMENT_TOPIC.equals(topic)) {
+            return Kind.SUBMITTED;
+        }
+        if ("COMPLETED".equals(status)) {
+            return Kind.COMPLETED;
+        }
+        if ("FAILED".equals(status)) {
+            return Kind.FAILED;
+        }
+        return null;
+    }
+
+    private void add(Long userId, LocalDate day, String currency, Kind kind, BigDecimal amount) {
+        for (WindowKey key : List.of(new WindowKey(userId, Granularity.DAY, day.toString()),
+                new WindowKey(userId, Granularity.MONTH, YearMonth.from(day).toString()))) {
+            windows.computeIfAbsent(key, k -> new HashMap<>())
+                    .computeIfAbsent(currency, c -> new Totals())
+                    .add(kind, amount);
+            changedWindows.add(key);
+        }
+    }
+
+    private String resolvePeriod(Granularity granularity, String period) {
+        if (period == null || period.isBlank()) {
+            LocalDate today = LocalDate.now(zone);
+            return granularity == Granularity.DAY ? today.toString() : YearMonth.from(today).toString();
+        }
+        try {
+            return granularity == Granularity.DAY
+                    ? LocalDate.parse(period.trim()).toString()
+                    : YearMonth.parse(period.trim()).toString();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(granularity == Granularity.DAY
+                    ? "period must be yyyy-MM-dd" : "period must be yyyy-MM");
+        }
+    }
+
+    private long periodStart(Granularity granularity, String period) {
+        LocalDate first = granularity == Granularity.DAY ? LocalDate.parse(period) : YearMonth.parse(period).atDay(1);
+        return first.atStartOfDay(zone).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Drop windows past retention; runs at most once a day, so the full scan stays off the hot path.
+     */
+    private void prune() {
+        LocalDate today = LocalDate.now(zone);
+        if (today.equals(prunedOn)) {
+            return;
+        }
+        prunedOn = today;
+        // ISO 格式的日期 / 月份按字典序比较即按时间比较
+        String oldestDay = today.minusDays(retainDays).toString();
+        String oldestMonth = YearMonth.from(today).minusMonths(retainMonths).toString();
+        windows.keySet().removeIf(key -> {
+            boolean expired = key.period().compareTo(
+                    key.granularity() == Granularity.DAY ? oldestDay : oldestMonth) < 0;
+            if (expired) {
+                changedWindows.add(key);
+            }
+            return expired;
+        });
+    }
+
+    private static Map<String, Totals> copy(Map<String, Totals> byCurrency) {
+        Map<String, Totals> copy = new HashMap<>(byCurrency.size());
+        byCurrency.forEach((currency, totals) -> copy.put(currency, totals.copy()));
+        return copy;
+    }
+
+    /**
+     * @param userId   null for all users
+     * @param complete false if the window starts before the oldest event still available when the state was
+     *                 rebuilt from the topics (retention had already deleted part of it)
+     * @param asOf     time of the newest event included, null if none yet
+     */
+    public record Window(Long userId, Granularity window, String period, boolean complete, Instant asOf,
+            Map<String, Map<Kind, Sum>> totals) {
+    }
+
+    public record Sum(long count, BigDecimal amount) {
+    }
+
+    private record WindowKey(Long userId, Granularity granularity, String period) {
+    }
+
+    private static final class Totals {
+
+        private final long[] counts = new long[Kind.values().length];
+        private final BigDecimal[] amounts = new BigDecimal[Kind.values().length];
+
+        Totals() {
+            Arrays.fill(amounts, BigDecimal.ZERO);
+        }
+
+        void add(Kind kind, BigDecimal amount) {
+            counts[kind.ordinal()]++;
+            amounts[kind.ordinal()] = amounts[kind.ordinal()].add(amount);
+        }
+
+        Totals copy() {
+            Totals copy = new Totals();
+            System.arraycopy(counts, 0, copy.counts, 0, counts.length);
+            System.arraycopy(amounts, 0, copy.amounts, 0, amounts.length);
+            return copy;
+        }
+
+        Map<Kind, Sum> toSums() {
+            Map<Kind, Sum> sums = new EnumMap<>(Kind.class);
+            for (Kind kind : Kind.values()) {
+                sums.put(kind, new Sum(counts[kind.ordinal()], amounts[kind.ordinal()]));
+            }
+            return sums;
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            for (int i = 0; i < counts.length; i++) {
+                out.writeLong(counts[i]);
+                out.writeUTF(amounts[i].toPlainString());
+            }
+        }
+
+        static Totals read(DataInputStream in) throws IOException {
+            Totals totals = new Totals();
+            for (int i = 0; i < totals.counts.length; i++) {
+                totals.counts[i] = in.readLong();
+                totals.amounts[i] = new BigDecimal(in.readUTF());
+            }
+            return totals;
+        }
+    }
+
+    /**
+     * Fixed-size Bloom filter of "paymentId#kind" keys counted since {@code startedAt} (record time);
+     * {@code inserted} keys so far, the store rotates it before this exceeds the capacity it was sized for.
+     */
+    private static final class DedupeFilter {
+
+        private final long[] bits;
+        private final int hashes;
+        private final long startedAt;
+        private long inserted;
+
+        private DedupeFilter(long[] bits, int hashes, long startedAt, long inserted) {
+            this.bits = bits;
+            this.hashes = hashes;
+            this.startedAt = startedAt;
+            this.inserted = inserted;
+        }
+
+        static DedupeFilter create(long expected, double fpp, long startedAt) {
+            double ln2 = Math.log(2);
+            long bitCount = (long) Math.ceil(-expected * Math.log(fpp) / (ln2 * ln2));
+            int words = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (bitCount + 63) / 64));
+            int hashes = Math.max(1, (int) Math.round((double) words * 64 / expected * ln2));
+            return new DedupeFilter(new long[words], hashes, startedAt, 0);
+        }
+
+        DedupeFilter copy() {
+            return new DedupeFilter(bits.clone(), hashes, startedAt, inserted);
+        }
+
+        boolean mightContain(String key) {
+            long h1 = hash(key, 0);
+            long h2 = hash(key, 0x9E3779B97F4A7C15L) | 1;
+            long size = (long) bits.length * 64;
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(h1 + i * h2, size);
+                if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void put(String key) {
+            long h1 = hash(key, 0);
+            long h2 = hash(key, 0x9E3779B97F4A7C15L) | 1;
+            long size = (long) bits.length * 64;
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(h1 + i * h2, size);
+                bits[(int) (bit >>> 6)] |= 1L << bit;
+            }
+            inserted++;
+        }
+
+        /**
+         * FNV-1a over the UTF-8 bytes, finished with the SplitMix64 mixer.
+         */
+        private static long hash(String key, long seed) {
+            long h = 0xcbf29ce484222325L ^ seed;
+            for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+                h ^= b & 0xff;
+                h *= 0x100000001b3L;
+            }
+            h ^= h >>> 30;
+            h *= 0xbf58476d1ce4e5b9L;
+            h ^= h >>> 27;
+            h *= 0x94d049bb133111ebL;
+            return h ^ (h >>> 31);
+        }
+
+        static void write(DataOutputStream out, DedupeFilter filter) throws IOException {
+            out.writeBoolean(filter != null);
+            if (filter == null) {
+                return;
+            }
+            out.writeLong(filter.startedAt);
+            out.writeLong(filter.inserted);
+            out.writeInt(filter.hashes);
+            out.writeInt(filter.bits.length);
+            for (long word : filter.bits) {
+                out.writeLong(word);
+            }
+        }
+
+        static DedupeFilter read(DataInputStream in) throws IOException {
+            if (!in.readBoolean()) {
+                return null;
+            }
+            long startedAt = in.readLong();
+            long inserted = in.readLong();
+            int hashes = in.readInt();
+            long[] bits = new long[in.readInt()];
+            for (int i = 0; i < bits.length; i++) {
+                bits[i] = in.readLong();
+            }
+            return new DedupeFilter(bits, hashes, startedAt, inserted);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.tutorial.service;
+
+import com.tutorial.mapper.PaymentArchiveMapper;
+import com.tutorial.mapper.PaymentMapper;
+import com.tutorial.model.Payment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 冷热数据分离：后台归档器。
+ * 把超过保留期的终态支付（COMPLETED / FAILED）小批量地从 `payments` 搬到 `payments_archive`，
+ * 让热表和它的二级索引只保留活跃的 PENDING 工作集，提高 Buffer Pool 命中率。
+ * 节流策略：每批之后按“批次耗时 × 倍数”休眠（占空比控制），并限制单次运行的批数，
+ * 避免长时间占满主库写入带宽、拉大从库复制延迟。多节点部署时通过 Redis 锁保证同一时刻只有一个节点在归档。
+ */
+@Service
+@ConditionalOnProperty(prefix = "app.archive", name = "enabled", havingValue = "true")
+public class PaymentArchiver {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentArchiver.class);
+    private static final String LOCK_KEY = "archive:payments:lock";
+
+    private final PaymentMapper paymentMapper;
+    private final PaymentArchiveMapper archiveMapper;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final Duration minAge;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final double pauseFactor;
+    private final long minPauseMillis;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public PaymentArchiver(PaymentMapper paymentMapper,
+            PaymentArchiveMapper archiveMapper,
+            RedisTemplate<String, String> redisTemplate,
+            @Value("${app.archive.min-age:30d}") Duration minAge,
+            @Value("${app.archive.batch-size:200}") int batchSize,
+            @Value("${app.archive.max-batches-per-run:50}") int maxBatchesPerRun,
+            @Value("${app.archive.pause-factor:4.0}") double pauseFactor,
+            @Value("${app.archive.min-pause-ms:100}") long minPauseMillis) {
+        this.paymentMapper = paymentMapper;
+        this.archiveMapper = archiveMapper;
+        this.redisTemplate = redisTemplate;
+        this.minAge = minAge;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.pauseFactor = pauseFactor;
+        this.minPauseMillis = minPauseMillis;
+    }
+
+    @Scheduled(initialDelayString = "${app.archive.initial-delay-ms:60000}",
+            fixedDelayString = "${app.archive.interval-ms:300000}")
+    public void archive() {
+        Duration lockTtl = Duration.ofMinutes(10);
+        Boolean locked = redisTemplate.opsForValue().setIfAbsent(LOCK_KEY, nodeId, lockTtl);
+        if (!Boolean.TRUE.equals(locked)) {
+            return;
+        }
+        try {
+            int archived = archiveOnce();
+            if (archived > 0) {
+                log.info("Archived {} finished payments older than {}", archived, minAge);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (nodeId.equals(redisTemplate.opsForValue().get(LOCK_KEY))) {
+                redisTemplate.delete(LOCK_KEY);
+            }
+        }
+    }
+
+    /**
+     * Move up to {@code maxBatchesPerRun} batches and return how many rows were archived.
+     */
+    int archiveOnce() throws InterruptedException {
+        LocalDateTime cutoff = LocalDateTime.now().minus(minAge);
+        int total = 0;
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            long start = System.nanoTime();
+
+            List<Payment> payments = paymentMapper.findArchivable(cutoff, batchSize);
+            if (payments.isEmpty()) {
+                break;
+            }
+            // 先写归档表再删热表：中途失败最多留下重复数据（下次 INSERT IGNORE 跳过），不会丢数据
+            archiveMapper.insertBatch(payments);
+            paymentMapper.deleteByPaymentIds(payments.stream().map(Payment::getPaymentId).toList());
+            total += payments.size();
+
+            if (payments.size() < batchSize) {
+                break;
+            }
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            Thread.sleep(Math.max(minPauseMillis, (long) (elapsedMillis * pauseFactor)));
+        }
+        return total;
+    }
+}
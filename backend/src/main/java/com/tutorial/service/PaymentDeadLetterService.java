@@ -0,0 +1,122 @@
+package com.tutorial.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tutorial.config.KafkaConfig;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 支付事件死信的登记与重放。
+ * 重试用尽的消息除了留在 Kafka 死信主题里（受保留期限制），还以 JSON 形式追加到 Redis 列表 payment-events:dead，
+ * 方便排查（附带最后一次的异常信息）和在修复问题后按先进先出顺序重新投递到 payment-events。
+ * 消费端是幂等的，重复重放不会重复扣款。
+ * 指标：payment.events.dead.parked（当前积压数）。
+ */
+@Service
+public class PaymentDeadLetterService {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentDeadLetterService.class);
+    private static final String PARKED_KEY = "payment-events:dead";
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final ObjectMapper objectMapper;
+
+    public PaymentDeadLetterService(RedisTemplate<String, String> redisTemplate,
+            KafkaTemplate<String, String> kafkaTemplate,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.kafkaTemplate = kafkaTemplate;
+        this.objectMapper = objectMapper;
+        Gauge.builder("payment.events.dead.parked", this, PaymentDeadLetterService::parkedCount)
+                .register(meterRegistry);
+    }
+
+    public void park(String key, String message, String error) {
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("key", key);
+        entry.put("message", message);
+        entry.put("error", error);
+        entry.put("parkedAt", Instant.now().toString());
+        redisTemplate.opsForList().rightPush(PARKED_KEY, write(entry));
+    }
+
+    /**
+     * The oldest {@code limit} parked events, without removing them.
+     */
+    public List<Map<String, Object>> list(int limit) {
+        List<String> raw = redisTemplate.opsForList().range(PARKED_KEY, 0, limit - 1L);
+        List<Map<String, Object>> entries = new ArrayList<>();
+        if (raw != null) {
+            for (String json : raw) {
+                entries.add(read(json));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Re-publish up to {@code limit} parked events to payment-events, oldest first.
+     * An event is only removed from the list once Kafka has acknowledged it.
+     *
+     * @return number of events replayed
+     */
+    public int replay(int limit) {
+        int replayed = 0;
+        while (replayed < limit) {
+            String json = redisTemplate.opsForList().index(PARKED_KEY, 0);
+            if (json == null) {
+                break;
+            }
+            Map<String, Object> entry = read(json);
+            try {
+                kafkaTemplate.send(KafkaConfig.PAYMENT_TOPIC, (String) entry.get("key"), (String) entry.get("message"))
+                        .get(10, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                log.error("Dead-letter replay stopped after {} events: {}", replayed, e.getMessage());
+                break;
+            }
+            // 只删除刚重放的这一条（LREM count=1 从表头开始匹配），并发 park 追加在表尾不受影响
+            redisTemplate.opsForList().remove(PARKED_KEY, 1, json);
+            replayed++;
+        }
+        log.info("Replayed {} dead-lettered payment events", replayed);
+        return replayed;
+    }
+
+    public long parkedCount() {
+        Long size = redisTemplate.opsForList().size(PARKED_KEY);
+        return size == null ? 0 : size;
+    }
+
+    private String write(Map<String, Object> entry) {
+        try {
+            return objectMapper.writeValueAsString(entry);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize dead letter", e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> read(String json) {
+        try {
+            return objectMapper.readValue(json, Map.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Corrupt dead letter entry", e);
+        }
+    }
+}
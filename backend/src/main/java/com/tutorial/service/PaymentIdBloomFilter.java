@@ -0,0 +1,167 @@
+package com.tutorial.service;
+
+import com.tutorial.mapper.PaymentArchiveMapper;
+import com.tutorial.mapper.PaymentMapper;
+import com.tutorial.util.RedisBloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.BiFunction;
+
+/**
+ * 支付单号的布隆过滤器（防缓存穿透）。
+ * 所有已签发的 paymentId 都登记在 Redis 位图里：查询一个“肯定不存在”的单号（输错、恶意枚举）时直接返回，
+ * 不再穿透 Redis 落到 MySQL。过滤器在启动时由一个节点（Redis 锁）从 payments + payments_archive 全量重建，
+ * 重建期间旧版本继续服务；尚未建好时一律放行，只会退化为原来的查库行为。
+ * 指标：payment.bloom.checks{result=absent|maybe|unavailable}、payment.bloom.false.positives 以及
+ * 观测到的误判率 payment.bloom.false.positive.rate。
+ */
+@Service
+public class PaymentIdBloomFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentIdBloomFilter.class);
+    private static final String REBUILD_LOCK = "bloom:{payments}:rebuild-lock";
+    private static final int PAGE_SIZE = 5000;
+
+    private final RedisBloomFilter filter;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final PaymentMapper paymentMapper;
+    private final PaymentArchiveMapper archiveMapper;
+    private final boolean rebuildOnStartup;
+
+    private final Counter absent;
+    private final Counter maybe;
+    private final Counter unavailable;
+    private final Counter falsePositives;
+
+    public PaymentIdBloomFilter(RedisTemplate<String, String> redisTemplate,
+            PaymentMapper paymentMapper,
+            PaymentArchiveMapper archiveMapper,
+            MeterRegistry meterRegistry,
+            @Value("${app.bloom.payments.initial-capacity:1000000}") long initialCapacity,
+            @Value("${app.bloom.payments.fpp:0.001}") double fpp,
+            @Value("${app.bloom.payments.rebuild-on-startup:true}") boolean rebuildOnStartup) {
+        this.filter = new RedisBloomFilter(redisTemplate, "payments", initialCapacity, fpp);
+        this.redisTemplate = redisTemplate;
+        this.paymentMapper = paymentMapper;
+        this.archiveMapper = archiveMapper;
+        this.rebuildOnStartup = rebuildOnStartup;
+
+        this.absent = meterRegistry.counter("payment.bloom.checks", "result", "absent");
+        this.maybe = meterRegistry.counter("payment.bloom.checks", "result", "maybe");
+        this.unavailable = meterRegistry.counter("payment.bloom.checks", "result", "unavailable");
+        this.falsePositives = meterRegistry.counter("payment.bloom.false.positives");
+        // 误判率 = 过滤器说“可能存在”但库里查不到的次数 / 所有真实不存在的查询次数
+        Gauge.builder("payment.bloom.false.positive.rate", this, f -> {
+                    double fp = f.falsePositives.count();
+                    double negatives = fp + f.absent.count();
+                    return negatives == 0 ? 0.0 : fp / negatives;
+                })
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return {@code FALSE} if the payment ID was definitely never issued, {@code TRUE} if it may have been,
+     * or {@code null} if the filter cannot tell (not built yet, Redis unavailable)
+     */
+    public Boolean check(String paymentId) {
+        Boolean result;
+        try {
+            result = filter.mightContain(paymentId);
+        } catch (Exception e) {
+            log.warn("Payment bloom filter unavailable: {}", e.getMessage());
+            result = null;
+        }
+        if (result == null) {
+            unavailable.increment();
+            return null;
+        }
+        (result ? maybe : absent).increment();
+        return result;
+    }
+
+    public void add(String paymentId) {
+        try {
+            filter.add(paymentId);
+        } catch (Exception e) {
+            // 漏登记会造成误拒，因此重建前的这段时间只能靠日志告警；重启或下次重建会补齐
+            log.error("Failed to register payment id in bloom filter: id={}", paymentId, e);
+        }
+    }
+
+    public void addAll(Collection<String> paymentIds) {
+        try {
+            filter.addAll(paymentIds);
+        } catch (Exception e) {
+            log.error("Failed to register {} payment ids in bloom filter", paymentIds.size(), e);
+        }
+    }
+
+    /**
+     * Called when the filter said "maybe" but neither the hot table nor the archive has the payment.
+     */
+    public void recordFalsePositive() {
+        falsePositives.increment();
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if (!rebuildOnStartup) {
+            return;
+        }
+        Boolean locked = redisTemplate.opsForValue().setIfAbsent(REBUILD_LOCK, "1", Duration.ofMinutes(30));
+        if (!Boolean.TRUE.equals(locked)) {
+            log.info("Payment bloom filter is being rebuilt by another node");
+            return;
+        }
+        try {
+            rebuild();
+        } finally {
+            redisTemplate.delete(REBUILD_LOCK);
+        }
+    }
+
+    /**
+     * Rebuild the filter from every payment ID in the hot and archive tables.
+     */
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        RedisBloomFilter.Rebuild rebuild = filter.startRebuild();
+        try {
+            long count = feed(rebuild, paymentMapper::findPaymentIdsAfter)
+                    + feed(rebuild, archiveMapper::findPaymentIdsAfter);
+            rebuild.commit();
+            log.info("Payment bloom filter rebuilt: {} ids in {} ms", count, System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            rebuild.abort();
+            log.error("Payment bloom filter rebuild failed", e);
+        }
+    }
+
+    private long feed(RedisBloomFilter.Rebuild rebuild, BiFunction<String, Integer, List<String>> page) {
+        long count = 0;
+        String after = "";
+        while (true) {
+            List<String> ids = page.apply(after, PAGE_SIZE);
+            if (ids.isEmpty()) {
+                return count;
+            }
+            rebuild.addAll(ids);
+            count += ids.size();
+            after = ids.get(ids.size() - 1);
+        }
+    }
+}
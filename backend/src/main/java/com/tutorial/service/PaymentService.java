@@ -1,38 +1,92 @@
 package com.tutorial.service;
 
+import com.tutorial.idgen.PaymentIdGenerator;
+import com.tutorial.idgen.PaymentIdStorage;
 import com.tutorial.model.Payment;
+import com.tutorial.mapper.PaymentArchiveMapper;
 import com.tutorial.mapper.PaymentMapper;
+import com.tutorial.util.RedisClientSideCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
-import java.util.UUID;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Payment processing service.
  * - Persists payment records via MyBatis
  * - Caches status in Redis for fast lookups
+ * - Guards status lookups with a Bloom filter of issued IDs plus short-lived negative caching
  * - Publishes payment events to Kafka for async processing
+ * - Accepts bulk submissions with multi-row inserts, pipelined Redis writes and batched Kafka sends
  */
 @Service
 public class PaymentService {
 
     private static final Logger log = LoggerFactory.getLogger(PaymentService.class);
     private static final String PAYMENT_TOPIC = "payment-events";
+    private static final String NOT_FOUND = "NOT_FOUND";
+    private static final Duration NEGATIVE_CACHE_TTL = Duration.ofSeconds(60);
+    private static final Duration STATUS_CACHE_TTL = Duration.ofMinutes(30);
 
     private final KafkaTemplate<String, String> kafkaTemplate;
     private final RedisTemplate<String, String> redisTemplate;
+    private final RedisClientSideCache redisCache;
     private final PaymentMapper paymentMapper;
+    private final PaymentArchiveMapper paymentArchiveMapper;
+    private final PaymentIdBloomFilter paymentIdBloomFilter;
+    private final PaymentIdGenerator paymentIdGenerator;
+    private final PaymentIdStorage paymentIdStorage;
+    private final int batchMaxSize;
+    private final int batchChunkSize;
+    private final Duration batchSendTimeout;
+    private final TransactionTemplate primaryRead;
 
     public PaymentService(KafkaTemplate<String, String> kafkaTemplate,
             RedisTemplate<String, String> redisTemplate,
-            PaymentMapper paymentMapper) {
+            RedisClientSideCache redisCache,
+            PaymentMapper paymentMapper,
+            PaymentArchiveMapper paymentArchiveMapper,
+            PaymentIdBloomFilter paymentIdBloomFilter,
+            PaymentIdGenerator paymentIdGenerator,
+            PaymentIdStorage paymentIdStorage,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.payments.batch.max-size:5000}") int batchMaxSize,
+            @Value("${app.payments.batch.chunk-size:500}") int batchChunkSize,
+            @Value("${app.payments.batch.send-timeout:30s}") Duration batchSendTimeout) {
         this.kafkaTemplate = kafkaTemplate;
         this.redisTemplate = redisTemplate;
+        this.redisCache = redisCache;
         this.paymentMapper = paymentMapper;
+        this.paymentArchiveMapper = paymentArchiveMapper;
+        this.paymentIdBloomFilter = paymentIdBloomFilter;
+        this.paymentIdGenerator = paymentIdGenerator;
+        this.paymentIdStorage = paymentIdStorage;
+        this.batchMaxSize = batchMaxSize;
+        this.batchChunkSize = batchChunkSize;
+        this.batchSendTimeout = batchSendTimeout;
+        // 读写事务一律路由到主库；REQUIRES_NEW 使它在只读事务里也拿一条新的（主库）连接
+        this.primaryRead = new TransactionTemplate(transactionManager);
+        this.primaryRead.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
     }
 
     /**
@@ -41,18 +95,20 @@ public class PaymentService {
      * @return the generated payment ID
      */
     public String processPayment(Payment payment) {
-        String paymentId = UUID.randomUUID().toString();
+        // UUID 形式的 ID 尾部编码了 user_id 所在的分片桶号，分库后按 ID 查单可以直接定位分片
+        String paymentId = paymentIdGenerator.nextId(payment.getUserId());
         payment.setPaymentId(paymentId);
         payment.setStatus("PENDING");
 
         // Persist to MySQL via MyBatis
         paymentMapper.insert(payment);
+        paymentIdBloomFilter.add(paymentId);
 
-        // Cache the PENDING status in Redis with 30-minute TTL
+        // Cache the PENDING status in Redis with 30-minute TTL (also replaces any negative-cache entry)
         redisTemplate.opsForValue().set(
                 "payment:" + paymentId,
                 "PENDING",
-                Duration.ofMinutes(30));
+                STATUS_CACHE_TTL);
 
         // Publish event to Kafka for async processing
         kafkaTemplate.send(PAYMENT_TOPIC, paymentId, payment.toJson())
@@ -68,26 +124,262 @@ public class PaymentService {
                         redisTemplate.opsForValue().set(
                                 "payment:" + paymentId,
                                 "FAILED",
-                                Duration.ofMinutes(30));
+                                STATUS_CACHE_TTL);
                     }
                 });
 
         return paymentId;
     }
 
+    /**
+     * Submit many payments at once. Items are validated and persisted independently, so one bad item
+     * does not reject the rest; the result list has one entry per input item, in input order.
+     *
+     * @throws IllegalArgumentException if the batch is empty or larger than the configured maximum
+     */
+    public List<BatchItemResult> processBatch(List<Payment> payments) {
+        if (payments == null || payments.isEmpty()) {
+            throw new IllegalArgumentException("Batch must contain at least one payment");
+        }
+        if (payments.size() > batchMaxSize) {
+            throw new IllegalArgumentException("Batch too large: " + payments.size() + " > " + batchMaxSize);
+        }
+
+        BatchItemResult[] results = new BatchItemResult[payments.size()];
+        List<Integer> valid = new ArrayList<>(payments.size());
+        for (int i = 0; i < payments.size(); i++) {
+            Payment payment = payments.get(i);
+            String error = validate(payment);
+            if (error != null) {
+                results[i] = BatchItemResult.rejected(i, error);
+                continue;
+            }
+            payment.setPaymentId(paymentIdGenerator.nextId(payment.getUserId()));
+            payment.setStatus("PENDING");
+            if (payment.getCurrency() == null) {
+                payment.setCurrency("USD");
+            }
+            valid.add(i);
+        }
+
+        // 1. 多行 INSERT，每块一条语句
+        List<Integer> persisted = new ArrayList<>(valid.size());
+        for (int from = 0; from < valid.size(); from += batchChunkSize) {
+            List<Integer> chunk = valid.subList(from, Math.min(valid.size(), from + batchChunkSize));
+            insertChunk(payments, chunk, results, persisted);
+        }
+        if (persisted.isEmpty()) {
+            return Arrays.asList(results);
+        }
+        List<String> ids = persisted.stream().map(i -> payments.get(i).getPaymentId()).toList();
+        paymentIdBloomFilter.addAll(ids);
+
+        // 2. 一次 pipeline 写入全部 PENDING 状态
+        cacheStatuses(ids, "PENDING");
+
+        // 3. 全部交给 Producer 后统一 flush，让同一分区的消息合并成大批次发送
+        List<CompletableFuture<SendResult<String, String>>> sends = new ArrayList<>(persisted.size());
+        for (int index : persisted) {
+            Payment payment = payments.get(index);
+            try {
+                sends.add(kafkaTemplate.send(PAYMENT_TOPIC, payment.getPaymentId(), payment.toJson()));
+            } catch (RuntimeException e) {
+                // send() 也可能同步抛出（缓冲区满等到 max.block.ms、序列化失败）：行已入库，按这一条发送失败处理
+                sends.add(CompletableFuture.failedFuture(e));
+            }
+        }
+        kafkaTemplate.flush();
+        try {
+            CompletableFuture.allOf(sends.toArray(new CompletableFuture[0]))
+                    .get(batchSendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // 个别发送失败或超时：下面逐条检查
+        }
+
+        List<String> failedIds = new ArrayList<>();
+        for (int k = 0; k < persisted.size(); k++) {
+            int index = persisted.get(k);
+            String paymentId = payments.get(index).getPaymentId();
+            CompletableFuture<SendResult<String, String>> send = sends.get(k);
+            if (send.isDone() && !send.isCompletedExceptionally()) {
+                results[index] = BatchItemResult.accepted(index, paymentId);
+            } else {
+                failedIds.add(paymentId);
+                results[index] = new BatchItemResult(index, paymentId, "FAILED", "Failed to publish payment event");
+            }
+        }
+        if (!failedIds.isEmpty()) {
+            log.error("Failed to send {} of {} batch payment events", failedIds.size(), persisted.size());
+            cacheStatuses(failedIds, "FAILED");
+        }
+        log.info("Payment batch processed: {} items, {} accepted", payments.size(), persisted.size() - failedIds.size());
+        return Arrays.asList(results);
+    }
+
+    private void insertChunk(List<Payment> payments, List<Integer> chunk,
+            BatchItemResult[] results, List<Integer> persisted) {
+        try {
+            paymentMapper.insertBatch(chunk.stream().map(payments::get).toList());
+            persisted.addAll(chunk);
+            return;
+        } catch (RuntimeException e) {
+            log.warn("Batch insert of {} payments failed, retrying row by row: {}", chunk.size(), e.getMessage());
+        }
+        // 多行 INSERT 失败（例如某个 user_id 不存在违反外键，或分库时某个分片失败）：逐条重试，把错误定位到具体条目
+        for (int index : chunk) {
+            Payment payment = payments.get(index);
+            try {
+                paymentMapper.insert(payment);
+                persisted.add(index);
+            } catch (DuplicateKeyException e) {
+                // 分库时这一行所在的分片可能已经写入成功（迁移中的桶也已双写到目标分片）；
+                // 必须确认已存在的行就是这笔支付，否则是 ID 冲突（例如 snowflake 节点号撞车），不能当成受理
+                if (isSamePayment(paymentMapper.findByPaymentId(payment.getPaymentId()), payment)) {
+                    persisted.add(index);
+                } else {
+                    results[index] = BatchItemResult.rejected(index, "Payment ID collision, please retry");
+                    log.error("Payment ID {} of batch payment #{} already belongs to another payment",
+                            payment.getPaymentId(), index);
+                }
+            } catch (RuntimeException e) {
+                results[index] = BatchItemResult.rejected(index, "Could not persist payment");
+                log.warn("Failed to persist batch payment #{}: {}", index, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Cache the statuses of the most recent payments (warm-up). Existing entries are left alone (SET NX),
+     * so a status written by the consumer meanwhile is never overwritten by the older value read here.
+     *
+     * @return the payment IDs that were loaded
+     */
+    public List<String> preloadRecentStatuses(int limit) {
+        List<Payment> recent = paymentMapper.findRecent(limit);
+        long ttlSeconds = STATUS_CACHE_TTL.toSeconds();
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (Payment payment : recent) {
+                connection.stringCommands().set(
+                        ("payment:" + payment.getPaymentId()).getBytes(StandardCharsets.UTF_8),
+                        payment.getStatus().getBytes(StandardCharsets.UTF_8),
+                        Expiration.seconds(ttlSeconds),
+                        RedisStringCommands.SetOption.ifAbsent());
+            }
+            return null;
+        });
+        return recent.stream().map(Payment::getPaymentId).toList();
+    }
+
+    private void cacheStatuses(List<String> paymentIds, String status) {
+        byte[] value = status.getBytes(StandardCharsets.UTF_8);
+        long ttlSeconds = STATUS_CACHE_TTL.toSeconds();
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (String paymentId : paymentIds) {
+                    connection.stringCommands().setEx(
+                            ("payment:" + paymentId).getBytes(StandardCharsets.UTF_8), ttlSeconds, value);
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            // 缓存写失败不影响受理结果：查询会回落到数据库
+            log.warn("Failed to cache {} payment statuses: {}", paymentIds.size(), e.getMessage());
+        }
+    }
+
+    private static boolean isSamePayment(Payment stored, Payment payment) {
+        return stored != null
+                && payment.getUserId().equals(stored.getUserId())
+                && stored.getAmount() != null && payment.getAmount().compareTo(stored.getAmount()) == 0
+                && payment.getCurrency().equals(stored.getCurrency());
+    }
+
+    private static boolean isFinal(String status) {
+        return "COMPLETED".equals(status) || "FAILED".equals(status);
+    }
+
+    private static String validate(Payment payment) {
+        if (payment == null) {
+            return "Payment is empty";
+        }
+        if (payment.getUserId() == null) {
+            return "Missing required field: userId";
+        }
+        if (payment.getAmount() == null || payment.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
+            return "Amount must be positive";
+        }
+        if (payment.getCurrency() != null && payment.getCurrency().length() != 3) {
+            return "Currency must be a 3-letter code";
+        }
+        if (payment.getDescription() != null && payment.getDescription().length() > 255) {
+            return "Description is longer than 255 characters";
+        }
+        return null;
+    }
+
     /**
      * Get the current status of a payment.
-     * Checks Redis cache first, falls back to database.
+     * Checks Redis cache first, falls back to database (a read replica when routing is enabled),
+     * then to the archive for finished payments that have been moved out of the hot table.
      */
+    @Transactional(readOnly = true)
     public String getPaymentStatus(String paymentId) {
-        // Try Redis cache first for speed
-        String cached = redisTemplate.opsForValue().get("payment:" + paymentId);
+        // IDs that cannot exist in the configured payment_id layout never reach Redis or the database
+        if (!paymentIdStorage.accepts(paymentId)) {
+            return NOT_FOUND;
+        }
+
+        // Try Redis cache first for speed (may hold a short-lived NOT_FOUND marker).
+        // Only final statuses are kept in the client-side cache; PENDING and NOT_FOUND change soon anyway.
+        String cached = redisCache.get("payment:" + paymentId, PaymentService::isFinal);
         if (cached != null) {
             return cached;
         }
 
+        // 布隆过滤器判定“肯定不存在”的单号直接返回，不再查库
+        Boolean mightExist = paymentIdBloomFilter.check(paymentId);
+        if (Boolean.FALSE.equals(mightExist)) {
+            return NOT_FOUND;
+        }
+
         // Fallback to database
         Payment payment = paymentMapper.findByPaymentId(paymentId);
-        return payment != null ? payment.getStatus() : "NOT_FOUND";
+        if (payment == null) {
+            payment = paymentArchiveMapper.findByPaymentId(paymentId);
+        }
+        if (payment == null && Boolean.TRUE.equals(mightExist)) {
+            // 过滤器说“可能存在”而从库没有：可能是刚创建、从库还没追上，缓存“不存在”之前先到主库确认
+            payment = primaryRead.execute(status -> paymentMapper.findByPaymentId(paymentId));
+        }
+        if (payment == null) {
+            if (Boolean.TRUE.equals(mightExist)) {
+                paymentIdBloomFilter.recordFalsePositive();
+            }
+            // SET NX：不覆盖 processPayment 在此期间写入的 PENDING
+            redisTemplate.opsForValue().setIfAbsent("payment:" + paymentId, NOT_FOUND, NEGATIVE_CACHE_TTL);
+            return NOT_FOUND;
+        }
+        return payment.getStatus();
+    }
+
+    /**
+     * Outcome of one item of a batch submission.
+     *
+     * @param index     position of the item in the request
+     * @param paymentId the issued payment ID, or null if the item was rejected before being stored
+     * @param status    PENDING (accepted), REJECTED (not stored) or FAILED (stored, but the event could not be sent)
+     * @param error     reason for REJECTED / FAILED
+     */
+    public record BatchItemResult(int index, String paymentId, String status, String error) {
+
+        static BatchItemResult accepted(int index, String paymentId) {
+            return new BatchItemResult(index, paymentId, "PENDING", null);
+        }
+
+        static BatchItemResult rejected(int index, String error) {
+            return new BatchItemResult(index, null, "REJECTED", error);
+        }
     }
 }
@@ -0,0 +1,330 @@
+package com.tutorial.service;
+
+import com.tutorial.model.Stock;
+import com.tutorial.model.StockChange;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 商品实时变更推送（SSE）的本节点分发中心。
+ * - 订阅时先推一份当前快照（event: snapshot），之后推增量（event: upsert / delete），可按代码或分类过滤；
+ * - 每个订阅者同一时刻最多只有一个发送任务在跑（单写者）；发送慢的客户端，新到的变更按商品 ID 合并到待发队列，
+ *   同一商品只保留最新值，因此积压量不超过它订阅的商品数，不会拖慢其它订阅者或撑爆内存；
+ * - 待发队列超过 max-pending 时直接丢弃，改为重新推一份完整快照；
+ * - SseEmitter.send 是阻塞的 Servlet 写：单次发送超过 send-timeout 的订阅者（客户端不读、TCP 窗口塞满）
+ *   由巡检直接断开（客户端重连后拿到新快照），并临时给发送线程池补一个线程顶替被卡住的那个，
+ *   所以卡住的客户端再多也占不满线程池；被卡住的线程等写超时或连接关闭后归还；
+ * - 定时心跳（SSE 注释行）用于及时发现已断开的连接。
+ * 增量来自 stock-events 主题（见 StockEventConsumer），所以任一节点上的写入都会推给所有节点的订阅者。
+ * 指标：stock.feed.subscribers、stock.feed.coalesced、stock.feed.resyncs、stock.feed.stalled。
+ */
+@Service
+public class StockFeedHub {
+
+    private static final Logger log = LoggerFactory.getLogger(StockFeedHub.class);
+
+    private final StockSnapshot stockSnapshot;
+    private final long timeoutMillis;
+    private final int maxPending;
+    private final long sendTimeoutNanos;
+    private final int senderThreads;
+    private final ThreadPoolExecutor senders;
+    // 由 senders 保护：仍卡在已断开订阅者的发送里、由补充线程顶替的线程数
+    private int stalledSenders;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    private final Counter coalesced;
+    private final Counter resyncs;
+    private final Counter stalled;
+
+    public StockFeedHub(StockSnapshot stockSnapshot,
+            MeterRegistry meterRegistry,
+            @Value("${app.stocks.feed.timeout:30m}") Duration timeout,
+            @Value("${app.stocks.feed.max-pending:10000}") int maxPending,
+            @Value("${app.stocks.feed.sender-threads:16}") int senderThreads,
+            @Value("${app.stocks.feed.send-timeout:5s}") Duration sendTimeout) {
+        this.stockSnapshot = stockSnapshot;
+        this.timeoutMillis = timeout.toMillis();
+        this.maxPending = maxPending;
+        this.sendTimeoutNanos = sendTimeout.toNanos();
+        this.senderThreads = senderThreads;
+        this.senders = new ThreadPoolExecutor(senderThreads, senderThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new CustomizableThreadFactory("stock-feed-"));
+        this.coalesced = meterRegistry.counter("stock.feed.coalesced");
+        this.resyncs = meterRegistry.counter("stock.feed.resyncs");
+        this.stalled = meterRegistry.counter("stock.feed.stalled");
+        Gauge.builder("stock.feed.subscribers", subscribers, Set::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Open a feed. Empty filters mean "everything".
+     */
+    public SseEmitter subscribe(Collection<String> symbols, Collection<String> categories) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter, upperCase(symbols),
+                categories == null ? Set.of() : Set.copyOf(categories));
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> {
+            subscribers.remove(subscriber);
+            emitter.complete();
+        });
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        // 先登记再取快照：期间到达的变更会在快照之后再推一次，客户端按 ID 覆盖即可
+        subscriber.requestSnapshot();
+        return emitter;
+    }
+
+    public void publish(StockChange change) {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(change);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.stocks.feed.heartbeat-interval:PT15S}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.requestHeartbeat();
+        }
+    }
+
+    /**
+     * Drop subscribers whose current send has been blocked longer than send-timeout and hand their
+     * sender thread's work to a stand-in thread, so stalled clients never hold up the others.
+     */
+    @Scheduled(fixedDelayString = "${app.stocks.feed.stall-check-interval:PT1S}")
+    public void evictStalled() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.evictIfStalled(now)) {
+                subscribers.remove(subscriber);
+                stalled.increment();
+                synchronized (senders) {
+                    stalledSenders++;
+                    // 先调大 max 再调大 core；core 变大时线程池会为排队任务立刻起新线程
+                    senders.setMaximumPoolSize(senderThreads + stalledSenders);
+                    senders.setCorePoolSize(senderThreads + stalledSenders);
+                }
+                log.info("Dropped stock feed subscriber stalled for over {} ms",
+                        TimeUnit.NANOSECONDS.toMillis(sendTimeoutNanos));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+        }
+        senders.shutdownNow();
+    }
+
+    private static Set<String> upperCase(Collection<String> values) {
+        if (values == null) {
+            return Set.of();
+        }
+        return values.stream().map(v -> v.trim().toUpperCase(Locale.ROOT)).collect(Collectors.toUnmodifiableSet());
+    }
+
+    private void releaseStalledSender() {
+        synchronized (senders) {
+            stalledSenders--;
+            senders.setCorePoolSize(senderThreads + stalledSenders);
+            senders.setMaximumPoolSize(senderThreads + stalledSenders);
+        }
+    }
+
+    private record Delta(String event, Object data) {
+    }
+
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final Set<String> symbols;
+        private final Set<String> categories;
+
+        // 以下字段由 this 保护
+        private final Map<Long, Delta> pending = new LinkedHashMap<>();
+        private boolean needsSnapshot;
+        private boolean needsHeartbeat;
+        private boolean sending;
+        private boolean closed;
+        // 正在阻塞发送的线程及开始时间；evicted 表示它被巡检判定卡住、已有补充线程顶替
+        private Thread sender;
+        private long sendStartedAt;
+        private boolean evicted;
+
+        Subscriber(SseEmitter emitter, Set<String> symbols, Set<String> categories) {
+            this.emitter = emitter;
+            this.symbols = symbols;
+            this.categories = categories;
+        }
+
+        boolean matches(Stock stock) {
+            return stock != null
+                    && (symbols.isEmpty() || (stock.getSymbol() != null
+                            && symbols.contains(stock.getSymbol().toUpperCase(Locale.ROOT))))
+                    && (categories.isEmpty() || categories.contains(stock.getCategory()));
+        }
+
+        void offer(StockChange change) {
+            boolean upsert = StockChange.UPSERT.equals(change.getType());
+            Delta delta;
+            if (upsert && matches(change.getStock())) {
+                delta = new Delta("upsert", change.getStock());
+            } else if (upsert ? matches(change.getPrevious())
+                    : change.getPrevious() == null || matches(change.getPrevious())) {
+                // 删除，或更新后不再符合过滤条件：对这个订阅者来说都是“移出”
+                delta = new Delta("delete", Map.of("id", change.getId()));
+            } else {
+                return;
+            }
+            synchronized (this) {
+                if (closed || needsSnapshot) {
+                    // 待推的快照读取于此之后，已包含这次变更
+                    return;
+                }
+                if (pending.put(change.getId(), delta) != null) {
+                    coalesced.increment();
+                }
+                if (pending.size() > maxPending) {
+                    pending.clear();
+                    needsSnapshot = true;
+                    resyncs.increment();
+                }
+                schedule();
+            }
+        }
+
+        synchronized void requestSnapshot() {
+            pending.clear();
+            needsSnapshot = true;
+            schedule();
+        }
+
+        synchronized void requestHeartbeat() {
+            needsHeartbeat = true;
+            schedule();
+        }
+
+        synchronized boolean evictIfStalled(long now) {
+            if (closed || sender == null || now - sendStartedAt < sendTimeoutNanos) {
+                return false;
+            }
+            closed = true;
+            evicted = true;
+            pending.clear();
+            // 尽量唤醒阻塞的写；唤醒不了就等 Servlet 写超时
+            sender.interrupt();
+            return true;
+        }
+
+        private void schedule() {
+            if (!sending && !closed) {
+                sending = true;
+                senders.execute(this::drain);
+            }
+        }
+
+        /**
+         * One blocking write; send-timeout applies to each write, so a long batch to a live client is fine.
+         */
+        private void send(SseEmitter.SseEventBuilder event) throws IOException {
+            synchronized (this) {
+                sender = Thread.currentThread();
+                sendStartedAt = System.nanoTime();
+            }
+            try {
+                emitter.send(event);
+            } finally {
+                synchronized (this) {
+                    sender = null;
+                }
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                boolean snapshot;
+                boolean heartbeat;
+                List<Delta> batch;
+                synchronized (this) {
+                    snapshot = needsSnapshot;
+                    heartbeat = needsHeartbeat;
+                    batch = new ArrayList<>(pending.values());
+                    needsSnapshot = false;
+                    needsHeartbeat = false;
+                    pending.clear();
+                    if (closed || (!snapshot && !heartbeat && batch.isEmpty())) {
+                        sending = false;
+                        return;
+                    }
+                }
+                Exception failure = null;
+                try {
+                    if (snapshot) {
+                        List<Stock> rows = stockSnapshot.list().stream().filter(this::matches).toList();
+                        send(SseEmitter.event().name("snapshot").data(rows, MediaType.APPLICATION_JSON));
+                    }
+                    for (Delta delta : batch) {
+                        send(SseEmitter.event().name(delta.event()).data(delta.data(), MediaType.APPLICATION_JSON));
+                    }
+                    if (heartbeat && !snapshot && batch.isEmpty()) {
+                        send(SseEmitter.event().comment("keepalive"));
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    failure = e;
+                }
+                boolean wasEvicted;
+                synchronized (this) {
+                    wasEvicted = evicted;
+                    if (wasEvicted || failure != null) {
+                        closed = true;
+                        sending = false;
+                        pending.clear();
+                    }
+                }
+                if (wasEvicted) {
+                    // 巡检已断开这个订阅者并补了线程：清掉中断标记，把线程还给线程池
+                    Thread.interrupted();
+                    releaseStalledSender();
+                    emitter.completeWithError(failure != null ? failure : new IOException("Stock feed send timed out"));
+                    return;
+                }
+                if (failure != null) {
+                    // 客户端已断开：移除订阅，剩余变更直接丢弃
+                    log.debug("Stock feed subscriber gone: {}", failure.getMessage());
+                    subscribers.remove(this);
+                    emitter.completeWithError(failure);
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.tutorial.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tutorial.model.Stock;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 单个商品读接口的“序列化结果”缓存：缓存的是可以直接写进响应体的 UTF-8 JSON 字节（可选预压缩的 gzip 版本），
+ * 命中时既不查 Redis / MySQL，也不再跑 Jackson 序列化（BigDecimal、LocalDateTime 的格式化开销都省掉）。
+ * 只按 ID 存一份内容；按代码查询通过 symbol → ID 的映射找到同一份内容，并在读取时校验代码是否仍然一致，
+ * 因此修改代码或删除商品时只需按 ID 失效。
+ * 这是节点本地缓存：本节点的写入会立即失效，其它节点的写入最多在 ttl 内可见旧值。
+ * 指标：stock.response.cache{result=hit|miss}、stock.response.cache.size。
+ */
+@Component
+public class StockResponseCache {
+
+    private final ObjectMapper objectMapper;
+    private final long ttlNanos;
+    private final int gzipMinBytes;
+
+    private final Map<Long, Entry> byId;
+    private final Map<String, Long> idBySymbol;
+    private final Counter hits;
+    private final Counter misses;
+
+    public StockResponseCache(ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${app.stocks.response-cache.max-entries:10000}") int maxEntries,
+            @Value("${app.stocks.response-cache.ttl:30s}") Duration ttl,
+            @Value("${app.stocks.response-cache.gzip-min-bytes:512}") int gzipMinBytes) {
+        this.objectMapper = objectMapper;
+        this.ttlNanos = ttl.toNanos();
+        this.gzipMinBytes = gzipMinBytes;
+        this.byId = lru(maxEntries);
+        this.idBySymbol = lru(maxEntries);
+        this.hits = meterRegistry.counter("stock.response.cache", "result", "hit");
+        this.misses = meterRegistry.counter("stock.response.cache", "result", "miss");
+        Gauge.builder("stock.response.cache.size", this, StockResponseCache::size)
+                .register(meterRegistry);
+    }
+
+    public Entry getById(Long id) {
+        Entry entry = lookup(id);
+        (entry != null ? hits : misses).increment();
+        return entry;
+    }
+
+    public Entry getBySymbol(String symbol) {
+        String key = symbol.toUpperCase(Locale.ROOT);
+        Long id;
+        synchronized (this) {
+            id = idBySymbol.get(key);
+        }
+        Entry entry = id == null ? null : lookup(id);
+        // 商品代码被改过时，旧映射指向的内容已经不是这个代码了
+        if (entry != null && !key.equalsIgnoreCase(entry.symbol())) {
+            entry = null;
+        }
+        (entry != null ? hits : misses).increment();
+        return entry;
+    }
+
+    private synchronized Entry lookup(Long id) {
+        Entry entry = byId.get(id);
+        if (entry == null) {
+            return null;
+        }
+        if (System.nanoTime() - entry.expiresAtNanos() > 0) {
+            byId.remove(id);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Serialize and cache a stock; returns the cached entry.
+     */
+    public Entry put(Stock stock) {
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(stock);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize stock " + stock.getId(), e);
+        }
+        return put(stock.getId(), stock.getSymbol(), json);
+    }
+
+    /**
+     * Cache already-serialized JSON (e.g. read from Redis) without re-encoding it.
+     */
+    public Entry put(Long id, String symbol, byte[] json) {
+        byte[] gzip = json.length >= gzipMinBytes ? gzip(json) : null;
+        Entry entry = new Entry(id, symbol, json, gzip, System.nanoTime() + ttlNanos);
+        synchronized (this) {
+            byId.put(id, entry);
+            if (symbol != null) {
+                idBySymbol.put(symbol.toUpperCase(Locale.ROOT), id);
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * IDs of the most recently used entries, most recent first.
+     */
+    public synchronized List<Long> recentIds(int limit) {
+        List<Long> ids = new ArrayList<>(byId.keySet());
+        Collections.reverse(ids);
+        return ids.size() > limit ? new ArrayList<>(ids.subList(0, limit)) : ids;
+    }
+
+    public synchronized void invalidate(Long id) {
+        byId.remove(id);
+    }
+
+    public synchronized int size() {
+        return byId.size();
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 32);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static <K, V> Map<K, V> lru(int maxEntries) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Ready-to-write response bodies for one stock.
+     *
+     * @param json UTF-8 JSON
+     * @param gzip gzip of {@code json}, or null if the body is too small to be worth compressing
+     */
+    public record Entry(Long id, String symbol, byte[] json, byte[] gzip, long expiresAtNanos) {
+
+        public String jsonString() {
+            return new String(json, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -1,13 +1,23 @@
 package com.tutorial.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tutorial.config.KafkaConfig;
 import com.tutorial.mapper.StockMapper;
 import com.tutorial.model.Stock;
+import com.tutorial.model.StockChange;
+import com.tutorial.util.RedisClientSideCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -20,46 +30,199 @@ public class StockService {
 
     private static final Logger log = LoggerFactory.getLogger(StockService.class);
     private static final String CACHE_PREFIX = "stock:";
+    private static final String SYMBOL_PREFIX = "stock:symbol:";
     private static final Duration CACHE_TTL = Duration.ofMinutes(5);
 
     private final StockMapper stockMapper;
     private final RedisTemplate<String, String> redisTemplate;
+    private final StockSnapshot stockSnapshot;
+    private final StockResponseCache responseCache;
+    private final ObjectMapper objectMapper;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final StockFeedHub stockFeedHub;
+    private final RedisClientSideCache redisCache;
 
-    public StockService(StockMapper stockMapper, RedisTemplate<String, String> redisTemplate) {
+    public StockService(StockMapper stockMapper, RedisTemplate<String, String> redisTemplate,
+            StockSnapshot stockSnapshot, StockResponseCache responseCache, ObjectMapper objectMapper,
+            KafkaTemplate<String, String> kafkaTemplate, StockFeedHub stockFeedHub,
+            RedisClientSideCache redisCache) {
         this.stockMapper = stockMapper;
         this.redisTemplate = redisTemplate;
+        this.stockSnapshot = stockSnapshot;
+        this.responseCache = responseCache;
+        this.objectMapper = objectMapper;
+        this.kafkaTemplate = kafkaTemplate;
+        this.stockFeedHub = stockFeedHub;
+        this.redisCache = redisCache;
     }
 
+    @Transactional(readOnly = true)
     public List<Stock> findAll() {
         return stockMapper.findAll();
     }
 
+    @Transactional(readOnly = true)
     public Stock findById(Long id) {
         return stockMapper.findById(id);
     }
 
+    /**
+     * Ready-to-write JSON for a single stock: node-local byte cache, then Redis, then MySQL.
+     * A local hit does no I/O and no serialization.
+     * Deliberately not a read-only transaction: a miss loads from the primary, since whatever it loads is
+     * cached for CACHE_TTL and a lagging replica would put a pre-update row there.
+     */
+    public StockResponseCache.Entry findJsonById(Long id) {
+        StockResponseCache.Entry entry = responseCache.getById(id);
+        if (entry != null) {
+            return entry;
+        }
+        String json = redisCache.get(CACHE_PREFIX + id);
+        if (json != null) {
+            // Redis 里已经是序列化好的 JSON，只解析出代码用于按代码查找，字节原样缓存
+            return responseCache.put(id, fromJson(json).getSymbol(), json.getBytes(StandardCharsets.UTF_8));
+        }
+        Stock stock = stockMapper.findById(id);
+        if (stock == null) {
+            return null;
+        }
+        entry = responseCache.put(stock);
+        fillCache(entry);
+        return entry;
+    }
+
+    /**
+     * Same as {@link #findJsonById} keyed by ticker symbol; Redis only maps the symbol to the ID.
+     */
+    public StockResponseCache.Entry findJsonBySymbol(String symbol) {
+        StockResponseCache.Entry entry = responseCache.getBySymbol(symbol);
+        if (entry != null) {
+            return entry;
+        }
+        String id = redisCache.get(SYMBOL_PREFIX + symbol);
+        if (id != null) {
+            entry = findJsonById(Long.valueOf(id));
+            // 映射可能已过时（代码被改或商品被删），内容里的代码对得上才算命中
+            if (entry != null && symbol.equalsIgnoreCase(entry.symbol())) {
+                return entry;
+            }
+        }
+        Stock stock = stockMapper.findBySymbol(symbol);
+        if (stock == null) {
+            return null;
+        }
+        entry = responseCache.put(stock);
+        fillCache(entry);
+        redisTemplate.opsForValue().set(SYMBOL_PREFIX + symbol, String.valueOf(stock.getId()), CACHE_TTL);
+        return entry;
+    }
+
+    @Transactional(readOnly = true)
     public Stock findBySymbol(String symbol) {
         return stockMapper.findBySymbol(symbol);
     }
 
+    /**
+     * Filter / sort over the in-memory columnar snapshot; never touches MySQL.
+     */
+    public StockSnapshot.Result query(StockSnapshot.Query query) {
+        return stockSnapshot.query(query);
+    }
+
+    /**
+     * Live feed: current snapshot, then every change made on any node (via stock-events).
+     */
+    public SseEmitter stream(Collection<String> symbols, Collection<String> categories) {
+        return stockFeedHub.subscribe(symbols, categories);
+    }
+
     public Stock create(Stock stock) {
         stockMapper.insert(stock);
+        stockSnapshot.upsert(stock);
+        publish(StockChange.UPSERT, stock.getId(), stock, null);
         log.info("Created stock: symbol={}, id={}", stock.getSymbol(), stock.getId());
         return stock;
     }
 
+    /**
+     * @return the updated stock, or null if no stock has this ID
+     */
     public Stock update(Stock stock) {
-        stockMapper.update(stock);
-        // 【双写一致性保障】发生更新事件时，必须主动销毁 Redis 中残留的旧缓存 (Invalidate)，强制下次查询走数据库
-        redisTemplate.delete(CACHE_PREFIX + stock.getId());
+        Stock previous = stockSnapshot.get(stock.getId());
+        if (stockMapper.update(stock) != 1) {
+            // 不存在的 ID：不能写进快照，更不能广播给其它节点和订阅者
+            return null;
+        }
+        stockSnapshot.upsert(stock);
+        // 【双写一致性保障】写库后直接把新行写进 Redis（而不是删除）：读请求回填只用 SETNX，
+        // 在途的、读到旧行的回填晚于这里到达时不会覆盖新值；其它节点收到 stock-events 后从 Redis 读到的也是新值
+        Stock current = stockMapper.findById(stock.getId());
+        if (current != null) {
+            StockResponseCache.Entry entry = responseCache.put(current);
+            redisTemplate.opsForValue().set(CACHE_PREFIX + entry.id(), entry.jsonString(), CACHE_TTL);
+        } else {
+            redisTemplate.delete(CACHE_PREFIX + stock.getId());
+            responseCache.invalidate(stock.getId());
+        }
+        publish(StockChange.UPSERT, stock.getId(), stock, previous);
         log.info("Updated stock: id={}, symbol={}", stock.getId(), stock.getSymbol());
         return stock;
     }
 
     public void delete(Long id) {
-        stockMapper.deleteById(id);
+        Stock previous = stockSnapshot.get(id);
+        if (stockMapper.deleteById(id) == 0) {
+            // 已经不存在：DELETE 保持幂等，但不再广播
+            return;
+        }
+        stockSnapshot.remove(id);
         // 【缓存双删/淘汰】物理删除记录后，连同缓存池中的残留一并抹除
         redisTemplate.delete(CACHE_PREFIX + id);
+        responseCache.invalidate(id);
+        publish(StockChange.DELETE, id, null, previous);
         log.info("Deleted stock: id={}", id);
     }
+
+    /**
+     * Broadcast the change on stock-events (keyed by ID, so changes to one stock stay ordered).
+     * Every node applies it to its snapshot and caches and pushes it to live feed subscribers.
+     */
+    private void publish(String type, Long id, Stock stock, Stock previous) {
+        StockChange change = StockChange.builder()
+                .type(type)
+                .id(id)
+                .stock(stock)
+                .previous(previous)
+                .timestamp(System.currentTimeMillis())
+                .build();
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(change);
+        } catch (JsonProcessingException e) {
+            log.error("Failed to serialize stock change: id={}", id, e);
+            return;
+        }
+        kafkaTemplate.send(KafkaConfig.STOCK_TOPIC, String.valueOf(id), json)
+                .whenComplete((result, ex) -> {
+                    if (ex != null) {
+                        // 本节点的快照和缓存已经更新；其它节点靠定时全量刷新和缓存 TTL 兜底
+                        log.error("Failed to publish stock change: id={}", id, ex);
+                    }
+                });
+    }
+
+    /**
+     * Populate stock:{id} after a miss. Only if absent, so it never replaces what update() wrote in the meantime.
+     */
+    private void fillCache(StockResponseCache.Entry entry) {
+        redisTemplate.opsForValue().setIfAbsent(CACHE_PREFIX + entry.id(), entry.jsonString(), CACHE_TTL);
+    }
+
+    private Stock fromJson(String json) {
+        try {
+            return objectMapper.readValue(json, Stock.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Corrupt cached stock JSON", e);
+        }
+    }
 }
@@ -0,0 +1,539 @@
+package com.tutorial.service;
+
+import com.tutorial.mapper.StockMapper;
+import com.tutorial.model.Stock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.StampedLock;
+import java.util.stream.IntStream;
+
+/**
+ * stocks 表的内存列式快照，用于任意组合的筛选 / 排序查询（价格区间、库存低于阈值、分类、按货值排序……），
+ * 不再为每种查询写 SQL，也不必 findAll() 之后在 Java 里逐个对象过滤。
+ * 布局：每一列一个原始类型数组——价格按 DECIMAL(12,4) 放大成 long，数量为 int，分类做字典编码成 int。
+ * 扫描是对这几个数组的顺序遍历，条件用不短路的 & 组合，循环体没有分支，JIT 可以自动向量化；
+ * 行数较多时可按块并行扫描。排序只取 Top-K（小顶堆），不对全部命中行排序。
+ * 一致性：StockService 的每次写入同步更新快照；其它节点的写入经 stock-events 广播到达（StockEventConsumer），
+ * 定时全量刷新兜底。全量刷新在锁外读库，期间到达的写入记入日志，换上新数据后重放，不会被旧的库表镜像覆盖。
+ * 并发：StampedLock——查询先走乐观读，结束时校验版本，期间有写入则在读锁下重跑。
+ */
+@Service
+public class StockSnapshot {
+
+    private static final Logger log = LoggerFactory.getLogger(StockSnapshot.class);
+    private static final int PRICE_SCALE = 4;
+    private static final int PARALLEL_CHUNK = 16_384;
+
+    private final StockMapper stockMapper;
+    private final int maxLimit;
+    private final int parallelThreshold;
+    private final StampedLock lock = new StampedLock();
+
+    // ── 列（下标 0..size-1 有效），只在写锁下修改 ──
+    private long[] ids = new long[0];
+    private long[] prices = new long[0];
+    private int[] quantities = new int[0];
+    private int[] categories = new int[0];
+    private String[] symbols = new String[0];
+    private String[] names = new String[0];
+    private int size;
+    private final Map<Long, Integer> rowById = new HashMap<>();
+    // 全量刷新期间的写入（ID -> 新值，删除为 null），只在写锁下访问；不在刷新时为 null
+    private Map<Long, Stock> reloadJournal;
+
+    // ── 分类字典：编码只增不减，-1 表示无分类 ──
+    private final Map<String, Integer> categoryCodes = new HashMap<>();
+    private final List<String> categoryNames = new ArrayList<>();
+
+    public StockSnapshot(StockMapper stockMapper,
+            @Value("${app.stocks.snapshot.max-limit:1000}") int maxLimit,
+            @Value("${app.stocks.snapshot.parallel-threshold:65536}") int parallelThreshold) {
+        this.stockMapper = stockMapper;
+        this.maxLimit = maxLimit;
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        reload();
+    }
+
+    /**
+     * Replace the whole snapshot with the current table contents (also picks up writes made by other nodes).
+     */
+    @Scheduled(fixedDelayString = "${app.stocks.snapshot.refresh-interval:PT10M}",
+            initialDelayString = "${app.stocks.snapshot.refresh-interval:PT10M}")
+    public synchronized void reload() {
+        long start = System.currentTimeMillis();
+        long stamp = lock.writeLock();
+        try {
+            reloadJournal = new LinkedHashMap<>();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        List<Stock> all;
+        try {
+            all = stockMapper.findAll();
+        } catch (RuntimeException e) {
+            stamp = lock.writeLock();
+            try {
+                reloadJournal = null;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            throw e;
+        }
+        int replayed;
+        stamp = lock.writeLock();
+        try {
+            size = 0;
+            rowById.clear();
+            ensureCapacity(all.size());
+            for (Stock stock : all) {
+                upsertLocked(stock);
+            }
+            // 读库之后才到的写入可能不在 all 里；读库之前的写入已在库中，重放一次也无妨
+            Map<Long, Stock> journal = reloadJournal;
+            reloadJournal = null;
+            for (Map.Entry<Long, Stock> entry : journal.entrySet()) {
+                if (entry.getValue() == null) {
+                    removeLocked(entry.getKey());
+                } else {
+                    upsertLocked(entry.getValue());
+                }
+            }
+            replayed = journal.size();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        log.info("Stock snapshot loaded: {} rows ({} concurrent writes replayed) in {} ms",
+                all.size(), replayed, System.currentTimeMillis() - start);
+    }
+
+    public void upsert(Stock stock) {
+        if (stock.getId() == null) {
+            return;
+        }
+        long stamp = lock.writeLock();
+        try {
+            upsertLocked(stock);
+            if (reloadJournal != null) {
+                reloadJournal.put(stock.getId(), stock);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void remove(Long id) {
+        long stamp = lock.writeLock();
+        try {
+            removeLocked(id);
+            if (reloadJournal != null) {
+                reloadJournal.put(id, null);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void removeLocked(Long id) {
+        Integer row = rowById.remove(id);
+        if (row == null) {
+            return;
+        }
+        // 用最后一行填补空洞，保持各列紧凑，扫描时不需要跳过已删除的行
+        int last = --size;
+        if (row != last) {
+            moveRow(last, row);
+            rowById.put(ids[row], row);
+        }
+        symbols[last] = null;
+        names[last] = null;
+    }
+
+    /**
+     * The row for {@code id}, or null if it is not in the snapshot.
+     */
+    public Stock get(Long id) {
+        long stamp = lock.readLock();
+        try {
+            Integer row = rowById.get(id);
+            return row == null ? null : toStock(row);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Every row, in no particular order (used for the initial state of the live feed).
+     */
+    public List<Stock> list() {
+        long stamp = lock.readLock();
+        try {
+            List<Stock> all = new ArrayList<>(size);
+            for (int row = 0; row < size; row++) {
+                all.add(toStock(row));
+            }
+            return all;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public int size() {
+        long stamp = lock.tryOptimisticRead();
+        int current = size;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                current = size;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Filter, then return the top {@code limit} rows by the requested sort key.
+     *
+     * @throws IllegalArgumentException if the limit is out of range
+     */
+    public Result query(Query query) {
+        if (query.limit() <= 0 || query.limit() > maxLimit) {
+            throw new IllegalArgumentException("limit must be between 1 and " + maxLimit);
+        }
+        long start = System.nanoTime();
+        long stamp = lock.tryOptimisticRead();
+        Result result = null;
+        if (stamp != 0) {
+            try {
+                result = run(query);
+            } catch (RuntimeException e) {
+                // 乐观读期间列被替换，读到的数据可能不一致；下面的校验一定失败，在读锁下重跑
+            }
+        }
+        if (result == null || !lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                result = run(query);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return new Result(result.matched(), result.items(), (System.nanoTime() - start) / 1000);
+    }
+
+    private Result run(Query query) {
+        // 先把列引用读到局部变量，整个查询都基于同一组数组
+        int n = size;
+        long[] idCol = ids;
+        long[] priceCol = prices;
+        int[] quantityCol = quantities;
+        int[] categoryCol = categories;
+        String[] symbolCol = symbols;
+        String[] nameCol = names;
+        n = Math.min(n, Math.min(idCol.length, Math.min(priceCol.length, Math.min(quantityCol.length,
+                Math.min(categoryCol.length, Math.min(symbolCol.length, nameCol.length))))));
+
+        Filter filter = compile(query);
+        if (filter == null) {
+            return new Result(0, List.of(), 0);
+        }
+
+        int[] matches;
+        if (query.parallel() && n >= parallelThreshold) {
+            int chunks = (n + PARALLEL_CHUNK - 1) / PARALLEL_CHUNK;
+            final int rows = n;
+            int[][] parts = IntStream.range(0, chunks).parallel()
+                    .mapToObj(c -> scan(filter, priceCol, quantityCol, categoryCol,
+                            c * PARALLEL_CHUNK, Math.min(rows, (c + 1) * PARALLEL_CHUNK)))
+                    .toArray(int[][]::new);
+            matches = concat(parts);
+        } else {
+            matches = scan(filter, priceCol, quantityCol, categoryCol, 0, n);
+        }
+
+        int[] top = topK(matches, query.sort(), query.descending(), query.limit(), idCol, priceCol, quantityCol);
+        List<Stock> items = new ArrayList<>(top.length);
+        for (int row : top) {
+            int code = categoryCol[row];
+            items.add(Stock.builder()
+                    .id(idCol[row])
+                    .symbol(symbolCol[row])
+                    .name(nameCol[row])
+                    .price(BigDecimal.valueOf(priceCol[row], PRICE_SCALE))
+                    .quantity(quantityCol[row])
+                    .category(code < 0 ? null : categoryNames.get(code))
+                    .build());
+        }
+        return new Result(matches.length, items, 0);
+    }
+
+    /**
+     * Rows in [from, to) matching the filter. No short-circuit operators, so the loop body is branch-free.
+     */
+    private static int[] scan(Filter f, long[] price, int[] quantity, int[] category, int from, int to) {
+        int[] selected = new int[to - from];
+        int count = 0;
+        long minPrice = f.minPrice();
+        long maxPrice = f.maxPrice();
+        int minQuantity = f.minQuantity();
+        int maxQuantity = f.maxQuantity();
+        int code = f.category();
+        boolean anyCategory = code == Filter.ANY;
+        for (int i = from; i < to; i++) {
+            boolean match = (price[i] >= minPrice) & (price[i] <= maxPrice)
+                    & (quantity[i] >= minQuantity) & (quantity[i] <= maxQuantity)
+                    & (anyCategory | category[i] == code);
+            selected[count] = i;
+            count += match ? 1 : 0;
+        }
+        return Arrays.copyOf(selected, count);
+    }
+
+    /**
+     * The {@code k} best rows by sort key, in order, using a bounded binary heap over primitive keys.
+     */
+    private static int[] topK(int[] rows, Sort sort, boolean descending, int k,
+            long[] id, long[] price, int[] quantity) {
+        int heapSize = 0;
+        int capacity = Math.min(k, rows.length);
+        int[] heapRows = new int[capacity];
+        long[] heapKeys = new long[capacity];
+        // 堆顶是当前 Top-K 中“最差”的一行；降序时把键取反，统一按升序处理
+        for (int row : rows) {
+            long key = sortKey(sort, row, id, price, quantity);
+            if (descending) {
+                key = -key - 1;
+            }
+            if (heapSize < capacity) {
+                heapRows[heapSize] = row;
+                heapKeys[heapSize] = key;
+                siftUp(heapRows, heapKeys, heapSize++, id);
+            } else if (capacity > 0 && better(key, row, heapKeys[0], heapRows[0], id)) {
+                heapRows[0] = row;
+                heapKeys[0] = key;
+                siftDown(heapRows, heapKeys, heapSize, id);
+            }
+        }
+        int[] ordered = new int[heapSize];
+        for (int i = heapSize - 1; i >= 0; i--) {
+            ordered[i] = heapRows[0];
+            heapRows[0] = heapRows[i];
+            heapKeys[0] = heapKeys[i];
+            siftDown(heapRows, heapKeys, i, id);
+        }
+        return ordered;
+    }
+
+    private static long sortKey(Sort sort, int row, long[] id, long[] price, int[] quantity) {
+        return switch (sort) {
+            case ID -> id[row];
+            case PRICE -> price[row];
+            case QUANTITY -> quantity[row];
+            // 货值 = 价格 × 数量，可能超出 long，用 double 的位模式做保序编码
+            case VALUE -> {
+                long bits = Double.doubleToLongBits((double) price[row] * quantity[row]);
+                yield bits ^ ((bits >> 63) & Long.MAX_VALUE);
+            }
+        };
+    }
+
+    /** Whether (key, row) sorts before (otherKey, otherRow); ties broken by id. */
+    private static boolean better(long key, int row, long otherKey, int otherRow, long[] id) {
+        return key < otherKey || (key == otherKey && id[row] < id[otherRow]);
+    }
+
+    // 大顶堆（按“更差”排序）：堆顶是 Top-K 中排在最后的一行
+    private static void siftUp(int[] rows, long[] keys, int i, long[] id) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!better(keys[parent], rows[parent], keys[i], rows[i], id)) {
+                return;
+            }
+            swap(rows, keys, i, parent);
+            i = parent;
+        }
+    }
+
+    private static void siftDown(int[] rows, long[] keys, int n, long[] id) {
+        int i = 0;
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= n) {
+                return;
+            }
+            int worst = left;
+            int right = left + 1;
+            if (right < n && better(keys[left], rows[left], keys[right], rows[right], id)) {
+                worst = right;
+            }
+            if (!better(keys[i], rows[i], keys[worst], rows[worst], id)) {
+                return;
+            }
+            swap(rows, keys, i, worst);
+            i = worst;
+        }
+    }
+
+    private static void swap(int[] rows, long[] keys, int a, int b) {
+        int row = rows[a];
+        rows[a] = rows[b];
+        rows[b] = row;
+        long key = keys[a];
+        keys[a] = keys[b];
+        keys[b] = key;
+    }
+
+    private static int[] concat(int[][] parts) {
+        int total = 0;
+        for (int[] part : parts) {
+            total += part.length;
+        }
+        int[] all = new int[total];
+        int offset = 0;
+        for (int[] part : parts) {
+            System.arraycopy(part, 0, all, offset, part.length);
+            offset += part.length;
+        }
+        return all;
+    }
+
+    /**
+     * Translate the query into scaled primitive bounds; null if it cannot match anything.
+     */
+    private Filter compile(Query query) {
+        long minPrice = query.minPrice() == null ? Long.MIN_VALUE
+                : query.minPrice().setScale(PRICE_SCALE, RoundingMode.CEILING).unscaledValue().longValueExact();
+        long maxPrice = query.maxPrice() == null ? Long.MAX_VALUE
+                : query.maxPrice().setScale(PRICE_SCALE, RoundingMode.FLOOR).unscaledValue().longValueExact();
+        int minQuantity = query.minQuantity() == null ? Integer.MIN_VALUE : query.minQuantity();
+        int maxQuantity = query.maxQuantity() == null ? Integer.MAX_VALUE : query.maxQuantity();
+        int category = Filter.ANY;
+        if (query.category() != null) {
+            Integer code = categoryCodes.get(query.category());
+            if (code == null) {
+                return null;
+            }
+            category = code;
+        }
+        return new Filter(minPrice, maxPrice, minQuantity, maxQuantity, category);
+    }
+
+    private Stock toStock(int row) {
+        int code = categories[row];
+        return Stock.builder()
+                .id(ids[row])
+                .symbol(symbols[row])
+                .name(names[row])
+                .price(BigDecimal.valueOf(prices[row], PRICE_SCALE))
+                .quantity(quantities[row])
+                .category(code < 0 ? null : categoryNames.get(code))
+                .build();
+    }
+
+    private void upsertLocked(Stock stock) {
+        Integer row = rowById.get(stock.getId());
+        if (row == null) {
+            ensureCapacity(size + 1);
+            row = size++;
+            rowById.put(stock.getId(), row);
+        }
+        ids[row] = stock.getId();
+        prices[row] = stock.getPrice() == null ? 0
+                : stock.getPrice().setScale(PRICE_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        quantities[row] = stock.getQuantity() == null ? 0 : stock.getQuantity();
+        categories[row] = encodeCategory(stock.getCategory());
+        symbols[row] = stock.getSymbol();
+        names[row] = stock.getName();
+    }
+
+    private int encodeCategory(String category) {
+        if (category == null) {
+            return -1;
+        }
+        return categoryCodes.computeIfAbsent(category, c -> {
+            categoryNames.add(c);
+            return categoryNames.size() - 1;
+        });
+    }
+
+    private void moveRow(int from, int to) {
+        ids[to] = ids[from];
+        prices[to] = prices[from];
+        quantities[to] = quantities[from];
+        categories[to] = categories[from];
+        symbols[to] = symbols[from];
+        names[to] = names[from];
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= ids.length) {
+            return;
+        }
+        int capacity = Math.max(required, Math.max(16, ids.length + (ids.length >> 1)));
+        // 先建好新数组再整体替换引用，乐观读拿到的旧数组仍然完整可读
+        long[] newIds = Arrays.copyOf(ids, capacity);
+        long[] newPrices = Arrays.copyOf(prices, capacity);
+        int[] newQuantities = Arrays.copyOf(quantities, capacity);
+        int[] newCategories = Arrays.copyOf(categories, capacity);
+        String[] newSymbols = Arrays.copyOf(symbols, capacity);
+        String[] newNames = Arrays.copyOf(names, capacity);
+        ids = newIds;
+        prices = newPrices;
+        quantities = newQuantities;
+        categories = newCategories;
+        symbols = newSymbols;
+        names = newNames;
+    }
+
+    public enum Sort {
+        ID, PRICE, QUANTITY, VALUE;
+
+        public static Sort parse(String value) {
+            try {
+                return valueOf(value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown sort: " + value + " (id, price, quantity, value)");
+            }
+        }
+    }
+
+    /**
+     * Filter and sort parameters; null bounds / category mean "no restriction".
+     */
+    public record Query(BigDecimal minPrice, BigDecimal maxPrice,
+            Integer minQuantity, Integer maxQuantity,
+            String category,
+            Sort sort, boolean descending, int limit, boolean parallel) {
+    }
+
+    /**
+     * @param matched    number of rows that passed the filter (before the limit)
+     * @param items      the top rows, in sort order
+     * @param tookMicros time spent in the snapshot
+     */
+    public record Result(int matched, List<Stock> items, long tookMicros) {
+    }
+
+    private record Filter(long minPrice, long maxPrice, int minQuantity, int maxQuantity, int category) {
+        static final int ANY = Integer.MIN_VALUE;
+    }
+}
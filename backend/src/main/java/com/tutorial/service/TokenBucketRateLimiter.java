@@ -0,0 +1,145 @@
+package com.tutorial.service;
+
+import com.tutorial.config.RateLimitRule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 分布式令牌桶限流器 (Distributed Token Bucket)。
+ * 桶状态保存在 Redis 中，由 Lua 脚本原子地完成“补充 + 扣减”，保证多节点共享同一份配额；
+ * 为了避免每个请求都付出一次 Redis 往返，每个节点会一次性“租借”一小批令牌（lease）在本地消费，
+ * 同样地，被拒绝的客户端在 Retry-After 到期之前也直接在本地拒绝。
+ * 代价：节点租到但未用完的令牌会在租约过期后作废，因此整体上只会比配置更严格，不会更宽松。
+ */
+@Service
+public class TokenBucketRateLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenBucketRateLimiter.class);
+    private static final String KEY_PREFIX = "ratelimit:";
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final DefaultRedisScript<List> script;
+    private final long leaseTtlMillis;
+    private final ConcurrentHashMap<String, Lease> leases = new ConcurrentHashMap<>();
+
+    public TokenBucketRateLimiter(RedisTemplate<String, String> redisTemplate,
+            @Value("${rate-limit.lease-ttl-ms:1000}") long leaseTtlMillis) {
+        this.redisTemplate = redisTemplate;
+        this.leaseTtlMillis = leaseTtlMillis;
+        this.script = new DefaultRedisScript<>();
+        this.script.setLocation(new ClassPathResource("scripts/token_bucket.lua"));
+        this.script.setResultType(List.class);
+    }
+
+    /**
+     * Try to take one token for the given client under the given rule.
+     */
+    public Decision tryAcquire(RateLimitRule rule, String clientKey) {
+        String bucketKey = KEY_PREFIX + rule.name() + ":" + clientKey;
+        long now = System.currentTimeMillis();
+
+        Lease lease = leases.get(bucketKey);
+        if (lease != null && now < lease.expiresAt) {
+            if (lease.deniedUntil > now) {
+                return Decision.denied(lease.deniedUntil - now);
+            }
+            if (lease.tryTake()) {
+                return Decision.ALLOWED;
+            }
+        }
+
+        long requested = Math.max(1, Math.min(rule.leaseSize(), rule.capacity()));
+        List<?> result;
+        try {
+            result = redisTemplate.execute(script, List.of(bucketKey),
+                    String.valueOf(rule.capacity()),
+                    String.valueOf(rule.refillPerSecond()),
+                    String.valueOf(requested));
+        } catch (Exception e) {
+            // Redis 不可用时选择放行（fail-open），限流只是保护手段，不应成为单点故障
+            log.warn("Rate limiter unavailable, allowing request: bucket={}, error={}", bucketKey, e.getMessage());
+            return Decision.ALLOWED;
+        }
+
+        long granted = ((Number) result.get(0)).longValue();
+        long waitMillis = ((Number) result.get(1)).longValue();
+
+        if (granted == 0) {
+            leases.put(bucketKey, Lease.denied(now + waitMillis));
+            return Decision.denied(waitMillis);
+        }
+        if (granted > 1) {
+            // 第一个令牌给当前请求，剩余的留给本节点后续请求
+            leases.put(bucketKey, Lease.granted(granted - 1, now + leaseTtlMillis));
+        } else {
+            leases.remove(bucketKey);
+        }
+        return Decision.ALLOWED;
+    }
+
+    /**
+     * Evict expired leases so idle clients do not accumulate in memory.
+     */
+    @Scheduled(fixedDelayString = "${rate-limit.lease-sweep-ms:30000}")
+    public void evictExpiredLeases() {
+        long now = System.currentTimeMillis();
+        leases.entrySet().removeIf(e -> e.getValue().expiresAt <= now);
+    }
+
+    /**
+     * Outcome of a rate-limit check.
+     */
+    public record Decision(boolean allowed, long retryAfterMillis) {
+
+        static final Decision ALLOWED = new Decision(true, 0);
+
+        static Decision denied(long retryAfterMillis) {
+            return new Decision(false, Math.max(retryAfterMillis, 1));
+        }
+    }
+
+    /**
+     * Tokens leased from Redis by this node, or a cached denial.
+     */
+    private static final class Lease {
+
+        private final AtomicLong tokens;
+        private final long expiresAt;
+        private final long deniedUntil;
+
+        private Lease(long tokens, long expiresAt, long deniedUntil) {
+            this.tokens = new AtomicLong(tokens);
+            this.expiresAt = expiresAt;
+            this.deniedUntil = deniedUntil;
+        }
+
+        static Lease granted(long tokens, long expiresAt) {
+            return new Lease(tokens, expiresAt, 0);
+        }
+
+        static Lease denied(long until) {
+            return new Lease(0, until, until);
+        }
+
+        boolean tryTake() {
+            long current;
+            do {
+                current = tokens.get();
+                if (current <= 0) {
+                    return false;
+                }
+            } while (!tokens.compareAndSet(current, current - 1));
+            return true;
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.tutorial.service;
+
+import com.tutorial.mapper.UserMapper;
+import com.tutorial.model.User;
+import com.tutorial.util.RedisBloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 注册时用户名 / 邮箱是否可用的低延迟检查（前端每敲一个字符就可能调用一次）。
+ * 查询顺序：
+ * 1. 本地 LRU 缓存最近的查询结果（“已占用”缓存较久，“可用”只缓存几秒，因为随时可能被别人注册）；
+ * 2. Redis 布隆过滤器：说“肯定没有”就直接判定可用，绝大多数新名字在这一步结束；
+ * 3. 仍不确定的字段合并成一次 SQL 查询。
+ * 这里的结果只是提示，最终以 users 表上的唯一索引为准（见 AuthService.register）。
+ * 指标：user.availability.lookups{source=cache|bloom|db}。
+ */
+@Service
+public class UserAvailabilityService {
+
+    private static final Logger log = LoggerFactory.getLogger(UserAvailabilityService.class);
+    private static final String REBUILD_LOCK = "bloom:{users}:rebuild-lock";
+    private static final int PAGE_SIZE = 5000;
+
+    private final UserMapper userMapper;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final RedisBloomFilter usernames;
+    private final RedisBloomFilter emails;
+    private final RecentLookups recent;
+    private final long takenTtlNanos;
+    private final long availableTtlNanos;
+    private final boolean rebuildOnStartup;
+
+    private final Counter cacheHits;
+    private final Counter bloomHits;
+    private final Counter dbLookups;
+
+    public UserAvailabilityService(UserMapper userMapper,
+            RedisTemplate<String, String> redisTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${app.availability.bloom.initial-capacity:1000000}") long initialCapacity,
+            @Value("${app.availability.bloom.fpp:0.001}") double fpp,
+            @Value("${app.availability.bloom.rebuild-on-startup:true}") boolean rebuildOnStartup,
+            @Value("${app.availability.cache.max-entries:10000}") int cacheSize,
+            @Value("${app.availability.cache.taken-ttl:10m}") Duration takenTtl,
+            @Value("${app.availability.cache.available-ttl:5s}") Duration availableTtl) {
+        this.userMapper = userMapper;
+        this.redisTemplate = redisTemplate;
+        this.usernames = new RedisBloomFilter(redisTemplate, "usernames", initialCapacity, fpp);
+        this.emails = new RedisBloomFilter(redisTemplate, "emails", initialCapacity, fpp);
+        this.recent = new RecentLookups(cacheSize);
+        this.takenTtlNanos = takenTtl.toNanos();
+        this.availableTtlNanos = availableTtl.toNanos();
+        this.rebuildOnStartup = rebuildOnStartup;
+
+        this.cacheHits = meterRegistry.counter("user.availability.lookups", "source", "cache");
+        this.bloomHits = meterRegistry.counter("user.availability.lookups", "source", "bloom");
+        this.dbLookups = meterRegistry.counter("user.availability.lookups", "source", "db");
+    }
+
+    /**
+     * Check whether a username and/or email is still free. Either argument may be null (not checked).
+     *
+     * @throws IllegalArgumentException if both are null or blank
+     */
+    public Availability check(String username, String email) {
+        username = blankToNull(username);
+        email = blankToNull(email);
+        if (username == null && email == null) {
+            throw new IllegalArgumentException("Provide username and/or email");
+        }
+
+        Boolean usernameTaken = username == null ? null : cachedOrBloom(usernames, usernameKey(username), username);
+        Boolean emailTaken = email == null ? null : cachedOrBloom(emails, emailKey(email), email);
+
+        boolean queryUsername = username != null && usernameTaken == null;
+        boolean queryEmail = email != null && emailTaken == null;
+        if (queryUsername || queryEmail) {
+            Availability fromDb = lookup(queryUsername ? username : null, queryEmail ? email : null);
+            if (queryUsername) {
+                usernameTaken = !fromDb.usernameAvailable();
+            }
+            if (queryEmail) {
+                emailTaken = !fromDb.emailAvailable();
+            }
+        }
+        return new Availability(
+                username == null ? null : !usernameTaken,
+                email == null ? null : !emailTaken);
+    }
+
+    /**
+     * Which of the two values is taken according to the database alone (used after a unique-key violation).
+     */
+    public Availability lookup(String username, String email) {
+        dbLookups.increment();
+        boolean usernameTaken = false;
+        boolean emailTaken = false;
+        for (User holder : userMapper.findByUsernameOrEmail(username, email)) {
+            // MySQL 默认排序规则不区分大小写，这里按同样的口径比较
+            usernameTaken |= username != null && username.equalsIgnoreCase(holder.getUsername());
+            emailTaken |= email != null && email.equalsIgnoreCase(holder.getEmail());
+        }
+        if (username != null) {
+            remember(usernameKey(username), usernameTaken);
+        }
+        if (email != null) {
+            remember(emailKey(email), emailTaken);
+        }
+        return new Availability(
+                username == null ? null : !usernameTaken,
+                email == null ? null : !emailTaken);
+    }
+
+    /**
+     * Record a successful registration so later checks on this node answer "taken" without a query.
+     */
+    public void registered(String username, String email) {
+        remember(usernameKey(username), true);
+        remember(emailKey(email), true);
+        try {
+            usernames.add(normalize(username));
+            emails.add(normalize(email));
+        } catch (Exception e) {
+            // 漏登记只会让过滤器误报“可用”，注册时仍会被唯一索引拦下；下次重建会补齐
+            log.error("Failed to register user in availability bloom filters: username={}", username, e);
+        }
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if (!rebuildOnStartup) {
+            return;
+        }
+        Boolean locked = redisTemplate.opsForValue().setIfAbsent(REBUILD_LOCK, "1", Duration.ofMinutes(30));
+        if (!Boolean.TRUE.equals(locked)) {
+            log.info("Availability bloom filters are being rebuilt by another node");
+            return;
+        }
+        try {
+            rebuild();
+        } finally {
+            redisTemplate.delete(REBUILD_LOCK);
+        }
+    }
+
+    /**
+     * Rebuild both filters from the users table.
+     */
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        RedisBloomFilter.Rebuild usernameRebuild = usernames.startRebuild();
+        RedisBloomFilter.Rebuild emailRebuild = emails.startRebuild();
+        try {
+            long count = 0;
+            long afterId = 0;
+            while (true) {
+                List<User> page = userMapper.findIdentitiesAfter(afterId, PAGE_SIZE);
+                if (page.isEmpty()) {
+                    break;
+                }
+                List<String> names = new ArrayList<>(page.size());
+                List<String> addresses = new ArrayList<>(page.size());
+                for (User user : page) {
+                    names.add(normalize(user.getUsername()));
+                    addresses.add(normalize(user.getEmail()));
+                }
+                usernameRebuild.addAll(names);
+                emailRebuild.addAll(addresses);
+                count += page.size();
+                afterId = page.get(page.size() - 1).getId();
+            }
+            usernameRebuild.commit();
+            emailRebuild.commit();
+            log.info("Availability bloom filters rebuilt: {} users in {} ms", count, System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            usernameRebuild.abort();
+            emailRebuild.abort();
+            log.error("Availability bloom filter rebuild failed", e);
+        }
+    }
+
+    /**
+     * @return {@code TRUE} taken, {@code FALSE} available, {@code null} if the database must decide
+     */
+    private Boolean cachedOrBloom(RedisBloomFilter filter, String key, String value) {
+        Boolean cached = recent.get(key);
+        if (cached != null) {
+            cacheHits.increment();
+            return cached;
+        }
+        Boolean mightExist;
+        try {
+            mightExist = filter.mightContain(normalize(value));
+        } catch (Exception e) {
+            log.warn("Availability bloom filter unavailable: {}", e.getMessage());
+            return null;
+        }
+        if (Boolean.FALSE.equals(mightExist)) {
+            bloomHits.increment();
+            remember(key, false);
+            return false;
+        }
+        return null;
+    }
+
+    private void remember(String key, boolean taken) {
+        recent.put(key, taken, System.nanoTime() + (taken ? takenTtlNanos : availableTtlNanos));
+    }
+
+    private static String usernameKey(String username) {
+        return "u:" + normalize(username);
+    }
+
+    private static String emailKey(String email) {
+        return "e:" + normalize(email);
+    }
+
+    private static String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    /**
+     * Result of a check; a field is null when it was not asked about.
+     */
+    public record Availability(Boolean usernameAvailable, Boolean emailAvailable) {
+    }
+
+    /**
+     * Small access-ordered LRU of recent answers with per-entry expiry.
+     */
+    private static final class RecentLookups {
+
+        private final Map<String, Entry> entries;
+
+        RecentLookups(int maxEntries) {
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                    return size() > maxEntries;
+                }
+            };
+        }
+
+        synchronized Boolean get(String key) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (System.nanoTime() - entry.expiresAtNanos() > 0) {
+                entries.remove(key);
+                return null;
+            }
+            return entry.taken();
+        }
+
+        synchronized void put(String key, boolean taken, long expiresAtNanos) {
+            entries.put(key, new Entry(taken, expiresAtNanos));
+        }
+
+        private record Entry(boolean taken, long expiresAtNanos) {
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.tutorial.sharding;
+
+import com.tutorial.model.Payment;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * Per-shard statements used only while moving buckets between shards.
+ * Bound to each shard's own SqlSessionFactory; not registered with the main one.
+ * SQL definitions are in resources/mapper/sharding/PaymentMigrationMapper.xml.
+ */
+public interface PaymentMigrationMapper {
+
+    List<Payment> findPageAfter(@Param("afterPaymentId") String afterPaymentId, @Param("limit") int limit);
+
+    int upsert(Payment payment);
+
+    int deleteByPaymentIds(@Param("paymentIds") List<String> paymentIds);
+}
@@ -0,0 +1,191 @@
+package com.tutorial.sharding;
+
+import com.tutorial.model.Payment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 在线重分片工具：把一批桶从当前所在分片搬到目标分片，全程不停写。
+ * 步骤：
+ * 1. 标记迁移中 —— 所有节点开始对这些桶双写（源 + 目标）；
+ * 2. 分批拷贝 —— 按 payment_id 键集分页扫描源分片，把属于这些桶的行 upsert 到目标分片，
+ *    每页拷贝后重读一次源分片，补上期间变成终态的行；
+ * 3. 切换归属 —— 读写全部改走目标分片；
+ * 4. 清理源分片 —— 再扫描一遍源分片，分批删除这些桶的行。
+ * 每一步之间等待两个路由刷新周期，确保所有节点都看到了新的路由表。
+ */
+public class PaymentResharder {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentResharder.class);
+
+    private final ShardedPaymentMapper shardedMapper;
+    private final PaymentShardRouter router;
+    private final int batchSize;
+    private final long propagationDelayMillis;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "payment-resharder");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile String status = "IDLE";
+
+    public PaymentResharder(ShardedPaymentMapper shardedMapper, PaymentShardRouter router,
+            int batchSize, long propagationDelayMillis) {
+        this.shardedMapper = shardedMapper;
+        this.router = router;
+        this.batchSize = batchSize;
+        this.propagationDelayMillis = propagationDelayMillis;
+    }
+
+    public String status() {
+        return status;
+    }
+
+    /**
+     * Start moving the buckets to the target shard in the background.
+     *
+     * @throws IllegalArgumentException if the request is invalid
+     * @throws IllegalStateException    if another move is still running
+     */
+    public void moveBuckets(Set<Integer> buckets, int targetShard) {
+        if (targetShard < 0 || targetShard >= router.shardCount()) {
+            throw new IllegalArgumentException("Unknown target shard: " + targetShard);
+        }
+        for (int bucket : buckets) {
+            if (bucket < 0 || bucket >= PaymentShardKey.BUCKETS) {
+                throw new IllegalArgumentException("Bucket out of range: " + bucket);
+            }
+        }
+        Set<Integer> moving = new TreeSet<>();
+        for (int bucket : buckets) {
+            if (router.readShard(bucket) != targetShard) {
+                moving.add(bucket);
+            }
+        }
+        if (moving.isEmpty()) {
+            return;
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A resharding is already running: " + status);
+        }
+        status = "STARTING";
+        worker.submit(() -> {
+            try {
+                run(moving, targetShard);
+            } finally {
+                running.set(false);
+            }
+        });
+    }
+
+    private void run(Set<Integer> buckets, int targetShard) {
+        try {
+            Map<Integer, List<Integer>> bySource = new LinkedHashMap<>();
+            for (int bucket : buckets) {
+                bySource.computeIfAbsent(router.readShard(bucket), k -> new ArrayList<>()).add(bucket);
+            }
+
+            status = "DUAL_WRITE " + buckets.size() + " buckets -> shard " + targetShard;
+            router.beginMigration(buckets, targetShard);
+            Thread.sleep(propagationDelayMillis);
+
+            int total = 0;
+            for (Map.Entry<Integer, List<Integer>> entry : bySource.entrySet()) {
+                int source = entry.getKey();
+                status = "COPY shard " + source + " -> shard " + targetShard;
+                total += copy(source, new TreeSet<>(entry.getValue()), targetShard);
+            }
+
+            status = "SWITCH " + buckets.size() + " buckets -> shard " + targetShard;
+            router.completeMigration(buckets, targetShard);
+            Thread.sleep(propagationDelayMillis);
+
+            for (Map.Entry<Integer, List<Integer>> entry : bySource.entrySet()) {
+                status = "CLEANUP shard " + entry.getKey();
+                cleanup(entry.getKey(), new TreeSet<>(entry.getValue()));
+            }
+
+            status = "DONE moved " + total + " rows in " + buckets.size() + " buckets to shard " + targetShard;
+            log.info("Resharding finished: {} rows, {} buckets -> shard {}", total, buckets.size(), targetShard);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            status = "FAILED interrupted";
+        } catch (Exception e) {
+            // 失败时桶仍处于双写状态，数据不会丢失；修复问题后重新发起同一迁移即可（upsert 幂等）
+            log.error("Resharding failed", e);
+            status = "FAILED " + e.getMessage();
+        }
+    }
+
+    private int copy(int source, Set<Integer> buckets, int targetShard) {
+        PaymentMigrationMapper from = shardedMapper.shards().get(source).migrationMapper();
+        PaymentMigrationMapper to = shardedMapper.shards().get(targetShard).migrationMapper();
+        int copied = 0;
+        String after = "";
+        while (true) {
+            List<Payment> page = from.findPageAfter(after, batchSize);
+            if (page.isEmpty()) {
+                return copied;
+            }
+            for (Payment payment : page) {
+                if (buckets.contains(PaymentShardKey.bucketOf(payment.getUserId()))) {
+                    to.upsert(payment);
+                    copied++;
+                }
+            }
+            reconcile(from, to, buckets, after);
+            after = page.get(page.size() - 1).getPaymentId();
+        }
+    }
+
+    /**
+     * Re-read the page just copied and push rows that reached a final status meanwhile.
+     * Closes the window where the page was read as PENDING, the status changed on the source, and the
+     * dual write found no row on the target yet; upsert only moves PENDING forward, so this is idempotent.
+     */
+    private void reconcile(PaymentMigrationMapper from, PaymentMigrationMapper to, Set<Integer> buckets,
+            String after) {
+        for (Payment payment : from.findPageAfter(after, batchSize)) {
+            if (!"PENDING".equals(payment.getStatus())
+                    && buckets.contains(PaymentShardKey.bucketOf(payment.getUserId()))) {
+                to.upsert(payment);
+            }
+        }
+    }
+
+    /**
+     * Remove the moved buckets from the source shard, including rows that arrived there by dual write
+     * after the copy pass had already gone past them.
+     */
+    private void cleanup(int source, Set<Integer> buckets) {
+        PaymentMigrationMapper from = shardedMapper.shards().get(source).migrationMapper();
+        String after = "";
+        while (true) {
+            List<Payment> page = from.findPageAfter(after, batchSize);
+            if (page.isEmpty()) {
+                return;
+            }
+            List<String> doomed = new ArrayList<>();
+            for (Payment payment : page) {
+                if (buckets.contains(PaymentShardKey.bucketOf(payment.getUserId()))) {
+                    doomed.add(payment.getPaymentId());
+                }
+            }
+            if (!doomed.isEmpty()) {
+                from.deleteByPaymentIds(doomed);
+            }
+            after = page.get(page.size() - 1).getPaymentId();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.tutorial.sharding;
+
+/**
+ * Shard key helpers for the payments table.
+ * Rows are assigned to one of {@link #BUCKETS} logical buckets by user_id; buckets are then mapped
+ * to physical shards (see {@link PaymentShardRouter}), so resharding only moves whole buckets.
+ * The bucket is also embedded in the last four hex digits of every payment ID, which lets
+ * lookups by payment ID go straight to the owning shard without knowing the user.
+ */
+public final class PaymentShardKey {
+
+    public static final int BUCKETS = 1024;
+
+    private static final int SUFFIX_LENGTH = 4;
+    private static final int UUID_LENGTH = 36;
+
+    private PaymentShardKey() {
+    }
+
+    public static int bucketOf(Long userId) {
+        if (userId == null) {
+            return 0;
+        }
+        // murmur3 fmix64：避免连续自增的 user_id 全部挤在相邻的桶里
+        long h = userId;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) Math.floorMod(h, (long) BUCKETS);
+    }
+
+    /**
+     * Replace the last four hex digits of a UUID-style ID with the user's bucket.
+     */
+    public static String tag(String paymentId, Long userId) {
+        if (paymentId == null || paymentId.length() < SUFFIX_LENGTH) {
+            return paymentId;
+        }
+        String suffix = String.format("%04x", bucketOf(userId));
+        return paymentId.substring(0, paymentId.length() - SUFFIX_LENGTH) + suffix;
+    }
+
+    /**
+     * Bucket embedded in a payment ID, or -1 if the ID carries none (only UUID-form IDs are tagged;
+     * snowflake IDs always fan out).
+     * IDs issued before sharding may decode to an arbitrary bucket; callers fall back to a fan-out when the
+     * routed shard has no such row.
+     */
+    public static int bucketOf(String paymentId) {
+        if (paymentId == null || paymentId.length() != UUID_LENGTH) {
+            return -1;
+        }
+        try {
+            int bucket = Integer.parseInt(paymentId.substring(paymentId.length() - SUFFIX_LENGTH), 16);
+            return bucket < BUCKETS ? bucket : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
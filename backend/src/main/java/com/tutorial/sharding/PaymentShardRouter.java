@@ -0,0 +1,109 @@
+package com.tutorial.sharding;
+
+import com.tutorial.mapper.ShardMapMapper;
+import com.tutorial.model.ShardAssignment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Bucket → shard routing table for payments.
+ * The assignments live in the `payment_shard_map` table on the main database so that every node routes
+ * the same way; each node keeps an in-memory copy and refreshes it periodically.
+ * While a bucket is being moved it has a target shard: reads still go to the owner, writes go to both.
+ */
+public class PaymentShardRouter {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentShardRouter.class);
+    private static final int NONE = -1;
+
+    private final ShardMapMapper shardMapMapper;
+    private final int shardCount;
+
+    private volatile int[] owners;
+    private volatile int[] targets;
+
+    public PaymentShardRouter(ShardMapMapper shardMapMapper, int shardCount) {
+        this.shardMapMapper = shardMapMapper;
+        this.shardCount = shardCount;
+        this.owners = defaultOwners();
+        this.targets = noTargets();
+    }
+
+    public int shardCount() {
+        return shardCount;
+    }
+
+    /** Shard that serves reads for the bucket. */
+    public int readShard(int bucket) {
+        return owners[bucket];
+    }
+
+    /** Shard being migrated to, or -1 when the bucket is not moving. */
+    public int migrationTarget(int bucket) {
+        return targets[bucket];
+    }
+
+    public int[] ownersSnapshot() {
+        return owners.clone();
+    }
+
+    public int[] targetsSnapshot() {
+        return targets.clone();
+    }
+
+    /**
+     * Reload the assignments from the database.
+     */
+    @Scheduled(fixedDelayString = "${app.sharding.map-refresh-interval-ms:2000}")
+    public void refresh() {
+        int[] newOwners = defaultOwners();
+        int[] newTargets = noTargets();
+        for (ShardAssignment assignment : shardMapMapper.findAll()) {
+            int bucket = assignment.getBucket();
+            if (bucket < 0 || bucket >= PaymentShardKey.BUCKETS || assignment.getShard() >= shardCount) {
+                log.warn("Ignoring invalid shard assignment: {}", assignment);
+                continue;
+            }
+            newOwners[bucket] = assignment.getShard();
+            if (assignment.getTargetShard() != null && assignment.getTargetShard() < shardCount) {
+                newTargets[bucket] = assignment.getTargetShard();
+            }
+        }
+        this.owners = newOwners;
+        this.targets = newTargets;
+    }
+
+    /** Start dual-writing the buckets to the target shard. */
+    public void beginMigration(Collection<Integer> buckets, int targetShard) {
+        for (int bucket : buckets) {
+            shardMapMapper.upsert(bucket, owners[bucket], targetShard);
+        }
+        refresh();
+    }
+
+    /** Hand the buckets over to the target shard. */
+    public void completeMigration(Collection<Integer> buckets, int targetShard) {
+        for (int bucket : buckets) {
+            shardMapMapper.upsert(bucket, targetShard, null);
+        }
+        refresh();
+    }
+
+    private int[] defaultOwners() {
+        int[] result = new int[PaymentShardKey.BUCKETS];
+        for (int bucket = 0; bucket < result.length; bucket++) {
+            result[bucket] = bucket % shardCount;
+        }
+        return result;
+    }
+
+    private static int[] noTargets() {
+        int[] result = new int[PaymentShardKey.BUCKETS];
+        Arrays.fill(result, NONE);
+        return result;
+    }
+}
@@ -0,0 +1,248 @@
+package com.tutorial.sharding;
+
+import com.tutorial.mapper.PaymentMapper;
+import com.tutorial.model.Payment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 分库分表后的 PaymentMapper 实现：对上层（PaymentService / PaymentConsumer）完全透明。
+ * - 按 user_id 的桶路由写入；按 payment_id 尾部嵌入的桶号路由单条查询和状态更新；
+ * - findByStatus 这类没有分片键的查询并行扇出到所有分片再合并；自增 id 各分片独立生成，不支持 findById；
+ * - 桶迁移期间写操作同时写源分片和目标分片（双写），读仍走源分片。
+ */
+public class ShardedPaymentMapper implements PaymentMapper {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardedPaymentMapper.class);
+
+    private final List<PaymentShard> shards;
+    private final PaymentShardRouter router;
+    private final ExecutorService fanOutExecutor;
+    private final boolean legacyFallback;
+
+    public ShardedPaymentMapper(List<PaymentShard> shards, PaymentShardRouter router,
+            ExecutorService fanOutExecutor, boolean legacyFallback) {
+        this.shards = shards;
+        this.router = router;
+        this.fanOutExecutor = fanOutExecutor;
+        this.legacyFallback = legacyFallback;
+    }
+
+    @Override
+    public Payment findById(Long id) {
+        // 自增主键在各分片独立生成，同一个 id 可能在每个分片上各对应一笔不同的支付，无法确定返回哪一条
+        throw new UnsupportedOperationException("Payments are sharded: look them up by payment ID, not by id");
+    }
+
+    @Override
+    public Payment findByPaymentId(String paymentId) {
+        int bucket = PaymentShardKey.bucketOf(paymentId);
+        if (bucket >= 0) {
+            Payment payment = shard(router.readShard(bucket)).mapper().findByPaymentId(paymentId);
+            if (payment != null || !legacyFallback) {
+                return payment;
+            }
+        }
+        return fanOut(shard -> shard.mapper().findByPaymentId(paymentId)).stream()
+                .filter(Objects::nonNull)
+                .findFirst()
+                .orElse(null);
+    }
+
+    @Override
+    public List<Payment> findByUserId(Long userId) {
+        return shard(router.readShard(PaymentShardKey.bucketOf(userId))).mapper().findByUserId(userId);
+    }
+
+    @Override
+    public List<Payment> findByStatus(String status) {
+        // 迁移中的桶在源、目标分片上各有一份，按 payment_id 去重
+        Map<String, Payment> merged = new LinkedHashMap<>();
+        for (List<Payment> part : fanOut(shard -> shard.mapper().findByStatus(status))) {
+            for (Payment payment : part) {
+                merged.putIfAbsent(payment.getPaymentId(), payment);
+            }
+        }
+        return new ArrayList<>(merged.values());
+    }
+
+    @Override
+    public int insert(Payment payment) {
+        int bucket = PaymentShardKey.bucketOf(payment.getUserId());
+        int rows;
+        try {
+            rows = shard(router.readShard(bucket)).mapper().insert(payment);
+        } catch (DuplicateKeyException e) {
+            // 源分片上已有这一行（例如批量写入时本分片成功、其它分片失败后的逐条重试），目标分片也要有
+            dualWrite(payment);
+            throw e;
+        }
+        dualWrite(payment);
+        return rows;
+    }
+
+    @Override
+    public int insertBatch(List<Payment> payments) {
+        // 按目标分片分组，各分片各执行一条多行 INSERT（并行）；任一分片失败即抛出，由调用方逐条补救
+        Map<Integer, List<Payment>> byShard = new LinkedHashMap<>();
+        for (Payment payment : payments) {
+            int bucket = PaymentShardKey.bucketOf(payment.getUserId());
+            byShard.computeIfAbsent(router.readShard(bucket), k -> new ArrayList<>()).add(payment);
+        }
+        return fanOut(shard -> {
+            List<Payment> part = byShard.get(shard.index());
+            if (part == null) {
+                return 0;
+            }
+            int rows = shard.mapper().insertBatch(part);
+            // 本分片提交后立即双写，不等其它分片：其它分片失败时这部分已经落库，不能漏掉目标分片
+            for (Payment payment : part) {
+                dualWrite(payment);
+            }
+            return rows;
+        }).stream().mapToInt(Integer::intValue).sum();
+    }
+
+    @Override
+    public int updateStatus(String paymentId, String status) {
+        int bucket = PaymentShardKey.bucketOf(paymentId);
+        if (bucket < 0) {
+            return fanOut(shard -> shard.mapper().updateStatus(paymentId, status)).stream()
+                    .mapToInt(Integer::intValue)
+                    .sum();
+        }
+        PaymentShard source = shard(router.readShard(bucket));
+        int rows = source.mapper().updateStatus(paymentId, status);
+        int target = router.migrationTarget(bucket);
+        if (target >= 0 && rows > 0) {
+            // 目标分片上可能还没有这一行（拷贝还没扫到），只 UPDATE 会落空；把源分片上的整行 upsert 过去。
+            // 拷贝随后写入的旧 PENDING 行不会覆盖终态（见 PaymentMigrationMapper.upsert）
+            Payment current = source.mapper().findByPaymentId(paymentId);
+            if (current != null) {
+                shard(target).migrationMapper().upsert(current);
+            }
+        }
+        if (rows == 0 && legacyFallback) {
+            rows = fanOut(shard -> shard.mapper().updateStatus(paymentId, status)).stream()
+                    .mapToInt(Integer::intValue)
+                    .sum();
+        }
+        return rows;
+    }
+
+    @Override
+    public List<Payment> findRecent(int limit) {
+        // 各分片的自增 id 互不相关，按创建时间合并
+        Map<String, Payment> merged = new LinkedHashMap<>();
+        for (List<Payment> part : fanOut(shard -> shard.mapper().findRecent(limit))) {
+            for (Payment payment : part) {
+                merged.putIfAbsent(payment.getPaymentId(), payment);
+            }
+        }
+        return merged.values().stream()
+                .sorted(Comparator.comparing(Payment::getCreatedAt,
+                        Comparator.nullsLast(Comparator.reverseOrder())))
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public List<String> findPaymentIdsAfter(String afterPaymentId, int limit) {
+        // 各分片各取一页再归并，取全局最小的 limit 个，键集分页因此在分片之间依然正确
+        TreeSet<String> merged = new TreeSet<>();
+        for (List<String> part : fanOut(shard -> shard.mapper().findPaymentIdsAfter(afterPaymentId, limit))) {
+            merged.addAll(part);
+        }
+        List<String> page = new ArrayList<>(Math.min(limit, merged.size()));
+        for (String paymentId : merged) {
+            if (page.size() == limit) {
+                break;
+            }
+            page.add(paymentId);
+        }
+        return page;
+    }
+
+    @Override
+    public List<Payment> findArchivable(LocalDateTime cutoff, int limit) {
+        // 按完成时间合并各分片的结果（迁移中的桶按 payment_id 去重），最早完成的先归档，不偏向排在前面的分片
+        Map<String, Payment> merged = new LinkedHashMap<>();
+        for (List<Payment> part : fanOut(shard -> shard.mapper().findArchivable(cutoff, limit))) {
+            for (Payment payment : part) {
+                merged.putIfAbsent(payment.getPaymentId(), payment);
+            }
+        }
+        return merged.values().stream()
+                .sorted(Comparator.comparing(Payment::getUpdatedAt, Comparator.nullsLast(Comparator.naturalOrder()))
+                        .thenComparing(Payment::getPaymentId))
+                .limit(limit)
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    @Override
+    public int deleteByPaymentIds(List<String> paymentIds) {
+        // 后台归档用的批量删除：ID 可能来自多个分片（含分库前的旧 ID），直接广播到所有分片
+        return fanOut(shard -> shard.mapper().deleteByPaymentIds(paymentIds)).stream()
+                .mapToInt(Integer::intValue)
+                .sum();
+    }
+
+    /**
+     * Copy a freshly inserted row to the migration target of its bucket, if the bucket is being moved.
+     */
+    private void dualWrite(Payment payment) {
+        int target = router.migrationTarget(PaymentShardKey.bucketOf(payment.getUserId()));
+        if (target < 0) {
+            return;
+        }
+        try {
+            shard(target).migrationMapper().upsert(payment);
+        } catch (Exception e) {
+            // 迁移的拷贝阶段会再次补齐这条记录，这里只记录日志
+            log.warn("Dual write to shard {} failed for payment {}: {}", target, payment.getPaymentId(), e.getMessage());
+        }
+    }
+
+    public List<PaymentShard> shards() {
+        return shards;
+    }
+
+    private PaymentShard shard(int index) {
+        return shards.get(index);
+    }
+
+    /**
+     * Run the query on every shard in parallel and collect the per-shard results in shard order.
+     */
+    private <T> List<T> fanOut(Function<PaymentShard, T> query) {
+        List<CompletableFuture<T>> futures = new ArrayList<>(shards.size());
+        for (PaymentShard shard : shards) {
+            futures.add(CompletableFuture.supplyAsync(() -> query.apply(shard), fanOutExecutor));
+        }
+        List<T> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<T> future : futures) {
+            results.add(future.join());
+        }
+        return results;
+    }
+
+    /**
+     * One physical shard: its index and the mappers bound to its datasource.
+     */
+    public record PaymentShard(int index, PaymentMapper mapper, PaymentMigrationMapper migrationMapper) {
+    }
+}
@@ -0,0 +1,138 @@
+package com.tutorial.sharding;
+
+import com.tutorial.idgen.PaymentIdStorage;
+import com.tutorial.idgen.PaymentIdTypeHandler;
+import com.tutorial.mapper.PaymentMapper;
+import com.tutorial.mapper.ShardMapMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.SqlSessionFactoryBean;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.jdbc.datasource.init.DatabasePopulatorUtils;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Opt-in horizontal sharding of the payments table ({@code app.sharding.enabled=true}).
+ * Each shard gets its own connection pool and MyBatis SqlSessionFactory loaded with the regular
+ * PaymentMapper.xml, and {@link ShardedPaymentMapper} is exposed as the primary {@link PaymentMapper}.
+ * Users, stocks and the shard map stay on the main datasource.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.sharding", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(ShardingProperties.class)
+public class ShardingConfig {
+
+    private final List<HikariDataSource> shardDataSources = new ArrayList<>();
+    private ExecutorService fanOutExecutor;
+
+    @Bean
+    public PaymentShardRouter paymentShardRouter(ShardMapMapper shardMapMapper, ShardingProperties properties) {
+        if (properties.getShards().isEmpty()) {
+            throw new IllegalStateException("app.sharding.enabled=true but no app.sharding.shards are configured");
+        }
+        PaymentShardRouter router = new PaymentShardRouter(shardMapMapper, properties.getShards().size());
+        router.refresh();
+        return router;
+    }
+
+    @Bean
+    @Primary
+    public ShardedPaymentMapper shardedPaymentMapper(ShardingProperties properties,
+            PaymentShardRouter router,
+            ResourceLoader resourceLoader,
+            ObjectProvider<Interceptor> interceptors,
+            PaymentIdStorage paymentIdStorage) throws Exception {
+        // 扇出查询专用线程池（不注册为 Bean，以免顶替 Spring Boot 自动配置的 @Async 执行器）
+        fanOutExecutor = Executors.newFixedThreadPool(properties.getShards().size() * 2, r -> {
+            Thread thread = new Thread(r, "payment-shard-fanout");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        List<ShardedPaymentMapper.PaymentShard> shards = new ArrayList<>();
+        for (int i = 0; i < properties.getShards().size(); i++) {
+            HikariDataSource dataSource = createDataSource(properties.getShards().get(i), "payment-shard-" + i);
+            if (properties.getInitSchema() != null) {
+                DatabasePopulatorUtils.execute(
+                        new ResourceDatabasePopulator(resourceLoader.getResource(properties.getInitSchema())),
+                        dataSource);
+            }
+            shardDataSources.add(dataSource);
+
+            SqlSessionTemplate template = new SqlSessionTemplate(
+                    createSqlSessionFactory(dataSource, resourceLoader, interceptors.orderedStream().toList(),
+                            paymentIdStorage));
+            shards.add(new ShardedPaymentMapper.PaymentShard(i,
+                    template.getMapper(PaymentMapper.class),
+                    template.getMapper(PaymentMigrationMapper.class)));
+        }
+        return new ShardedPaymentMapper(shards, router, fanOutExecutor, properties.isLegacyFallback());
+    }
+
+    @Bean
+    public PaymentResharder paymentResharder(ShardedPaymentMapper shardedPaymentMapper,
+            PaymentShardRouter router,
+            ShardingProperties properties,
+            @Value("${app.sharding.map-refresh-interval-ms:2000}") long refreshIntervalMillis) {
+        return new PaymentResharder(shardedPaymentMapper, router,
+                properties.getMigrationBatchSize(), refreshIntervalMillis * 2);
+    }
+
+    private HikariDataSource createDataSource(ShardingProperties.Shard shard, String poolName) {
+        DataSourceBuilder<HikariDataSource> builder = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(shard.getUrl())
+                .username(shard.getUsername())
+                .password(shard.getPassword());
+        if (shard.getDriverClassName() != null) {
+            builder.driverClassName(shard.getDriverClassName());
+        }
+        HikariDataSource dataSource = builder.build();
+        dataSource.setPoolName(poolName);
+        return dataSource;
+    }
+
+    private SqlSessionFactory createSqlSessionFactory(HikariDataSource dataSource,
+            ResourceLoader resourceLoader,
+            List<Interceptor> interceptors,
+            PaymentIdStorage paymentIdStorage) throws Exception {
+        org.apache.ibatis.session.Configuration configuration = new org.apache.ibatis.session.Configuration();
+        configuration.setMapUnderscoreToCamelCase(true);
+        // 解析 mapper XML 之前登记，XML 里引用的 payment_id 类型处理器才会用到配置的存储格式
+        PaymentIdTypeHandler.register(configuration.getTypeHandlerRegistry(), paymentIdStorage);
+
+        SqlSessionFactoryBean factory = new SqlSessionFactoryBean();
+        factory.setDataSource(dataSource);
+        factory.setConfiguration(configuration);
+        // 与主库 SqlSessionFactory 使用同一组 MyBatis 插件（如 JFR 计时）
+        factory.setPlugins(interceptors.toArray(new Interceptor[0]));
+        factory.setMapperLocations(
+                resourceLoader.getResource("classpath:mapper/PaymentMapper.xml"),
+                resourceLoader.getResource("classpath:mapper/sharding/PaymentMigrationMapper.xml"));
+        return factory.getObject();
+    }
+
+    @PreDestroy
+    public void closeShards() {
+        if (fanOutExecutor != null) {
+            fanOutExecutor.shutdown();
+        }
+        shardDataSources.forEach(HikariDataSource::close);
+    }
+}
@@ -0,0 +1,36 @@
+package com.tutorial.sharding;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Payment sharding settings bound from {@code app.sharding.*}.
+ */
+@Data
+@ConfigurationProperties(prefix = "app.sharding")
+public class ShardingProperties {
+
+    private boolean enabled = false;
+
+    /** Look on every shard when the shard named by a payment ID has no such row (IDs issued before sharding). */
+    private boolean legacyFallback = true;
+
+    /** Rows copied per batch while moving buckets between shards. */
+    private int migrationBatchSize = 500;
+
+    /** Optional script run against every shard at startup (local/dev setups only). */
+    private String initSchema;
+
+    private List<Shard> shards = new ArrayList<>();
+
+    @Data
+    public static class Shard {
+        private String url;
+        private String username;
+        private String password;
+        private String driverClassName;
+    }
+}
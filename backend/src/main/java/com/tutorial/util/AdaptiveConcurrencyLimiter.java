@@ -0,0 +1,103 @@
+package com.tutorial.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Adaptive concurrency limit driven by observed latency (the "gradient" algorithm popularised by
+ * Netflix concurrency-limits, a close relative of TCP Vegas).
+ * 核心思路：比较短期延迟（最近一次请求）和长期基线延迟（指数滑动平均）。
+ * - 短期延迟接近基线：说明没有排队，限额按 sqrt(limit) 的幅度缓慢上探；
+ * - 短期延迟明显高于基线：说明请求开始排队，按 gradient = 容忍度 × 基线 / 短期 的比例收缩限额；
+ * - 在途请求远低于限额时不调整（负载不足以说明问题）。
+ * 超出限额的请求由调用方立即拒绝，而不是在线程池里排队，从而把延迟控制在基线附近。
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double smoothing;
+    private final double longWindowFactor;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+    private double longRttNanos;
+
+    /**
+     * @param initialLimit starting concurrency limit
+     * @param minLimit     the limit never drops below this
+     * @param maxLimit     the limit never grows above this
+     * @param tolerance    how much latency above the baseline is accepted before shrinking (e.g. 1.5 = 50%)
+     * @param smoothing    weight of each new estimate in the limit (0..1]
+     * @param longWindow   number of samples the baseline latency averages over
+     */
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit,
+            double tolerance, double smoothing, int longWindow) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.smoothing = smoothing;
+        this.longWindowFactor = 2.0 / (longWindow + 1);
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * Take a slot if the number of requests in flight is below the current limit.
+     *
+     * @return the number of requests in flight when this one started, or -1 if the request must be rejected
+     */
+    public int tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                return -1;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return current + 1;
+            }
+        }
+    }
+
+    /**
+     * Release a slot taken by {@link #tryAcquire()} and feed the request's latency into the limit.
+     *
+     * @param rttNanos         how long the request took
+     * @param inFlightAtStart  the value returned by {@link #tryAcquire()}
+     * @param sample           false for requests whose latency says nothing about load (e.g. client errors)
+     */
+    public void release(long rttNanos, int inFlightAtStart, boolean sample) {
+        inFlight.decrementAndGet();
+        if (sample && rttNanos > 0) {
+            update(rttNanos, inFlightAtStart);
+        }
+    }
+
+    private synchronized void update(long rttNanos, int inFlightAtStart) {
+        if (longRttNanos == 0) {
+            longRttNanos = rttNanos;
+            return;
+        }
+        longRttNanos += (rttNanos - longRttNanos) * longWindowFactor;
+        // 持续过载后基线会被拉高：短期延迟远低于基线时说明负载已恢复，让基线快速回落
+        if (longRttNanos / rttNanos > 2.0) {
+            longRttNanos *= 0.95;
+        }
+
+        double current = limit;
+        if (inFlightAtStart < current / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRttNanos / rttNanos));
+        double estimate = current * gradient + Math.sqrt(current);
+        double next = current * (1 - smoothing) + estimate * smoothing;
+        limit = Math.max(minLimit, Math.min(maxLimit, next));
+    }
+
+    public int limit() {
+        return (int) limit;
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+}
@@ -0,0 +1,17 @@
+package com.tutorial.util;
+
+import org.springframework.security.core.AuthenticatedPrincipal;
+
+/**
+ * Principal of a JWT-authenticated request. {@link #getName()} is the username, as before,
+ * so {@code Authentication#getName()} is unchanged for existing callers.
+ *
+ * @param userId from the uid claim; null for tokens issued before it was added
+ */
+public record JwtPrincipal(Long userId, String username) implements AuthenticatedPrincipal {
+
+    @Override
+    public String getName() {
+        return username;
+    }
+}
@@ -31,10 +31,15 @@ public class JwtUtil {
 
     /**
      * Generate a JWT token for the given username with optional extra claims.
+     *
+     * @param userId ID of the account, carried as the uid claim so requests never look it up; null if none
      */
-    public String generateToken(String username, String role) {
+    public String generateToken(String username, Long userId, String role) {
         Map<String, Object> claims = new HashMap<>();
         claims.put("role", role);
+        if (userId != null) {
+            claims.put("uid", userId);
+        }
 
         return Jwts.builder()
                 .claims(claims)
@@ -52,6 +57,21 @@ public class JwtUtil {
         return extractAllClaims(token).getSubject();
     }
 
+    /**
+     * Extract the role claim from a JWT token.
+     */
+    public String extractRole(String token) {
+        return extractAllClaims(token).get("role", String.class);
+    }
+
+    /**
+     * Extract the user ID (uid claim) from a JWT token; null for tokens issued without one.
+     */
+    public Long extractUserId(String token) {
+        Number userId = extractAllClaims(token).get("uid", Number.class);
+        return userId == null ? null : userId.longValue();
+    }
+
     /**
      * Validate a token: checks signature and expiration.
      */
@@ -0,0 +1,184 @@
+package com.tutorial.util;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Scalable Bloom filter stored in Redis bitmaps and shared by all nodes.
+ * Bits are set and tested by Lua scripts (bloom_add.lua / bloom_contains.lua) so each call is one round trip.
+ * The filter grows by stacking larger layers instead of degrading once the initial capacity is exceeded.
+ * It can be rebuilt from the source of truth into a fresh generation while the old one keeps serving;
+ * values added during the rebuild go into both generations, then the pointer is swapped atomically.
+ */
+public class RedisBloomFilter {
+
+    private static final int ADD_BATCH = 500;
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final String base;
+    private final String liveKey;
+    private final String buildingKey;
+    private final String sequenceKey;
+    private final String capacity;
+    private final String fpp;
+    private final DefaultRedisScript<Long> addScript;
+    private final DefaultRedisScript<Long> containsScript;
+
+    /**
+     * @param name            filter name, used in the Redis keys
+     * @param initialCapacity expected insertions before the first extra layer is added
+     * @param fpp             target false-positive probability of the first layer
+     */
+    public RedisBloomFilter(RedisTemplate<String, String> redisTemplate, String name,
+            long initialCapacity, double fpp) {
+        this.redisTemplate = redisTemplate;
+        // 花括号是 Redis Cluster 的 hash tag，保证同一个过滤器的所有 key 落在同一个槽
+        this.base = "bloom:{" + name + "}";
+        this.liveKey = base + ":live";
+        this.buildingKey = base + ":building";
+        this.sequenceKey = base + ":seq";
+        this.capacity = String.valueOf(initialCapacity);
+        this.fpp = String.valueOf(fpp);
+        this.addScript = script("scripts/bloom_add.lua");
+        this.containsScript = script("scripts/bloom_contains.lua");
+    }
+
+    public void add(String value) {
+        addAll(List.of(value), "");
+    }
+
+    public void addAll(Collection<String> values) {
+        addAll(values, "");
+    }
+
+    /**
+     * @return {@code TRUE} if the value may be present, {@code FALSE} if it is definitely absent,
+     * or {@code null} if no generation has been built yet
+     */
+    public Boolean mightContain(String value) {
+        long[] h = hash(value);
+        Long result = redisTemplate.execute(containsScript, List.of(liveKey),
+                base, capacity, fpp, String.valueOf(h[0]), String.valueOf(h[1]));
+        if (result == null || result < 0) {
+            return null;
+        }
+        return result == 1L;
+    }
+
+    public boolean isBuilt() {
+        return Boolean.TRUE.equals(redisTemplate.hasKey(liveKey));
+    }
+
+    /**
+     * Start building a new generation. Feed it every existing value with {@link Rebuild#addAll},
+     * then {@link Rebuild#commit()} to make it live.
+     */
+    public Rebuild startRebuild() {
+        String generation = String.valueOf(redisTemplate.opsForValue().increment(sequenceKey));
+        redisTemplate.opsForValue().set(buildingKey, generation);
+        return new Rebuild(generation);
+    }
+
+    private void addAll(Collection<String> values, String generation) {
+        List<String> batch = new ArrayList<>();
+        for (String value : values) {
+            long[] h = hash(value);
+            batch.add(String.valueOf(h[0]));
+            batch.add(String.valueOf(h[1]));
+            if (batch.size() >= ADD_BATCH * 2) {
+                flush(batch, generation);
+            }
+        }
+        if (!batch.isEmpty()) {
+            flush(batch, generation);
+        }
+    }
+
+    private void flush(List<String> hashes, String generation) {
+        Object[] args = new Object[4 + hashes.size()];
+        args[0] = base;
+        args[1] = capacity;
+        args[2] = fpp;
+        args[3] = generation;
+        for (int i = 0; i < hashes.size(); i++) {
+            args[4 + i] = hashes.get(i);
+        }
+        redisTemplate.execute(addScript, List.of(liveKey, buildingKey), args);
+        hashes.clear();
+    }
+
+    private void deleteGeneration(String generation) {
+        String prefix = base + ":g" + generation;
+        Object layers = redisTemplate.opsForHash().get(prefix + ":meta", "layers");
+        List<String> keys = new ArrayList<>();
+        keys.add(prefix + ":meta");
+        int count = layers != null ? Integer.parseInt(layers.toString()) : 0;
+        for (int layer = 0; layer < count; layer++) {
+            keys.add(prefix + ":" + layer);
+        }
+        redisTemplate.unlink(keys);
+    }
+
+    /**
+     * Two independent 32-bit hashes for double hashing (h1 + i * h2), from a 64-bit FNV-1a + murmur3 finalizer.
+     */
+    static long[] hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        long h1 = h & 0xffffffffL;
+        long h2 = (h >>> 32) | 1L;
+        return new long[]{h1, h2};
+    }
+
+    private static DefaultRedisScript<Long> script(String location) {
+        DefaultRedisScript<Long> script = new DefaultRedisScript<>();
+        script.setLocation(new ClassPathResource(location));
+        script.setResultType(Long.class);
+        return script;
+    }
+
+    /**
+     * A generation being rebuilt.
+     */
+    public final class Rebuild {
+
+        private final String generation;
+
+        private Rebuild(String generation) {
+            this.generation = generation;
+        }
+
+        public void addAll(Collection<String> values) {
+            RedisBloomFilter.this.addAll(values, generation);
+        }
+
+        /** Make this generation live and drop the previous one. */
+        public void commit() {
+            String previous = redisTemplate.opsForValue().getAndSet(liveKey, generation);
+            redisTemplate.delete(buildingKey);
+            if (previous != null && !previous.equals(generation)) {
+                deleteGeneration(previous);
+            }
+        }
+
+        /** Abandon this generation. */
+        public void abort() {
+            redisTemplate.delete(buildingKey);
+            deleteGeneration(generation);
+        }
+    }
+}
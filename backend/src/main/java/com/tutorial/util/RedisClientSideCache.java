@@ -0,0 +1,237 @@
+package com.tutorial.util;
+
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.RedisChannelHandler;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisConnectionStateListener;
+import io.lettuce.core.RedisException;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.TrackingArgs;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.push.PushMessage;
+import io.lettuce.core.codec.StringCodec;
+import io.lettuce.core.protocol.ProtocolVersion;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.net.SocketAddress;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Server-assisted client-side caching of Redis string values (RESP3 {@code CLIENT TRACKING}).
+ * Reads go through a dedicated RESP3 connection with tracking enabled; the server remembers which keys this
+ * connection has read and pushes an {@code invalidate} message as soon as one of them is written, deleted or
+ * expires, and the entry is dropped from the bounded local LRU. Repeated reads of unchanged keys never leave the JVM.
+ * <p>
+ * A miss first parks a placeholder under the key, then reads from Redis; the value is only stored if the
+ * placeholder is still there afterwards, so an invalidation that arrives while the read is in flight is never
+ * overwritten by the stale reply. While the connection is down invalidations can be lost, so a disconnect
+ * empties the cache and reads bypass it until tracking has been re-enabled on the new connection.
+ * <p>
+ * When disabled (or if the tracking connection cannot be opened) every read goes straight to the RedisTemplate.
+ * Metrics: redis.client.cache.requests{result=hit|miss|bypass}, redis.client.cache.hit.ratio,
+ * redis.client.cache.size, redis.client.cache.invalidations.
+ */
+public class RedisClientSideCache {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisClientSideCache.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final Map<String, Object> entries;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter bypassed;
+    private final Counter invalidations;
+
+    private RedisClient client;
+    private volatile StatefulRedisConnection<String, String> connection;
+    private volatile boolean tracking;
+    // 由 entries 的锁保护；每次断线加一，断线前发出的读取结果一律不入缓存
+    private long generation;
+
+    /**
+     * @param maxEntries local entries kept; least recently used ones are dropped beyond this
+     */
+    public RedisClientSideCache(RedisTemplate<String, String> redisTemplate, int maxEntries,
+            MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.hits = meterRegistry.counter("redis.client.cache.requests", "result", "hit");
+        this.misses = meterRegistry.counter("redis.client.cache.requests", "result", "miss");
+        this.bypassed = meterRegistry.counter("redis.client.cache.requests", "result", "bypass");
+        this.invalidations = meterRegistry.counter("redis.client.cache.invalidations");
+        Gauge.builder("redis.client.cache.hit.ratio", this, RedisClientSideCache::hitRatio)
+                .register(meterRegistry);
+        Gauge.builder("redis.client.cache.size", this, RedisClientSideCache::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Open the tracking connection. Until this succeeds, reads bypass the local cache.
+     */
+    public void start(RedisURI uri) {
+        client = RedisClient.create(uri);
+        client.setOptions(ClientOptions.builder()
+                .protocolVersion(ProtocolVersion.RESP3)
+                .build());
+        client.addListener(new RedisConnectionStateListener() {
+            @Override
+            public void onRedisConnected(RedisChannelHandler<?, ?> channel, SocketAddress socketAddress) {
+                // 首次连接时 connection 尚未赋值，由 start() 自己开启 tracking
+                if (connection != null) {
+                    enableTracking();
+                }
+            }
+
+            @Override
+            public void onRedisDisconnected(RedisChannelHandler<?, ?> channel) {
+                tracking = false;
+                synchronized (entries) {
+                    generation++;
+                    entries.clear();
+                }
+            }
+        });
+        try {
+            StatefulRedisConnection<String, String> opened = client.connect(StringCodec.UTF8);
+            opened.addListener(this::onPush);
+            opened.sync().clientTracking(TrackingArgs.Builder.enabled());
+            connection = opened;
+            tracking = true;
+            log.info("Redis client-side caching enabled on {}", uri.getHost());
+        } catch (RedisException e) {
+            log.warn("Redis client-side caching unavailable, reading through: {}", e.getMessage());
+            client.shutdown();
+            client = null;
+        }
+    }
+
+    public String get(String key) {
+        return get(key, value -> true);
+    }
+
+    /**
+     * Read a string value, from the local cache when possible.
+     *
+     * @param cacheable whether a value read from Redis may be kept locally (e.g. only final statuses)
+     */
+    public String get(String key, Predicate<String> cacheable) {
+        StatefulRedisConnection<String, String> current = connection;
+        if (current == null || !tracking) {
+            bypassed.increment();
+            return redisTemplate.opsForValue().get(key);
+        }
+        Object placeholder = new Object();
+        long readGeneration;
+        synchronized (entries) {
+            Object cached = entries.get(key);
+            if (cached instanceof String value) {
+                hits.increment();
+                return value;
+            }
+            readGeneration = generation;
+            if (cached == null && tracking) {
+                entries.put(key, placeholder);
+            } else {
+                // 另一个线程正在加载同一个 key，或刚刚断线：照常读取，但不缓存结果
+                placeholder = null;
+            }
+        }
+        misses.increment();
+        String value;
+        try {
+            // 必须经 tracking 连接读取，服务端才会记录这个 key 并在变化时通知
+            value = current.sync().get(key);
+        } catch (RuntimeException e) {
+            if (placeholder != null) {
+                synchronized (entries) {
+                    entries.remove(key, placeholder);
+                }
+            }
+            throw e;
+        }
+        if (placeholder != null) {
+            synchronized (entries) {
+                if (entries.get(key) == placeholder) {
+                    if (value != null && readGeneration == generation && cacheable.test(value)) {
+                        entries.put(key, value);
+                    } else {
+                        entries.remove(key);
+                    }
+                }
+            }
+        }
+        return value;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public double hitRatio() {
+        double hit = hits.count();
+        double total = hit + misses.count() + bypassed.count();
+        return total == 0 ? 0 : hit / total;
+    }
+
+    public void close() {
+        tracking = false;
+        StatefulRedisConnection<String, String> current = connection;
+        connection = null;
+        if (current != null) {
+            current.close();
+        }
+        if (client != null) {
+            client.shutdown();
+        }
+    }
+
+    /**
+     * Re-issue CLIENT TRACKING after a reconnect; the server forgets it together with the old connection.
+     */
+    private void enableTracking() {
+        connection.async().clientTracking(TrackingArgs.Builder.enabled())
+                .whenComplete((reply, e) -> {
+                    if (e != null) {
+                        log.warn("Failed to re-enable Redis client tracking, reading through: {}", e.getMessage());
+                        return;
+                    }
+                    tracking = true;
+                    log.info("Redis client tracking re-enabled after reconnect");
+                });
+    }
+
+    private void onPush(PushMessage message) {
+        if (!"invalidate".equals(message.getType())) {
+            return;
+        }
+        List<Object> content = message.getContent(StringCodec.UTF8::decodeKey);
+        Object keys = content.size() > 1 ? content.get(1) : null;
+        synchronized (entries) {
+            if (keys instanceof List<?> list) {
+                for (Object key : list) {
+                    entries.remove(key);
+                }
+                invalidations.increment(list.size());
+            } else {
+                // 键列表为空表示 FLUSHALL / FLUSHDB（或服务端丢弃了跟踪表），只能全部失效
+                entries.clear();
+                invalidations.increment();
+            }
+        }
+    }
+}
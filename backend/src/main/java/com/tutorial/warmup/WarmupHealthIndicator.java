@@ -0,0 +1,27 @@
+package com.tutorial.warmup;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Health contributor "warmup": OUT_OF_SERVICE until {@link WarmupRunner} has finished.
+ * Included in the readiness group (/actuator/health/readiness), so load balancers and Kubernetes
+ * only route traffic to the instance once it is warm.
+ */
+@Component
+public class WarmupHealthIndicator implements HealthIndicator {
+
+    private final WarmupRunner warmupRunner;
+
+    public WarmupHealthIndicator(WarmupRunner warmupRunner) {
+        this.warmupRunner = warmupRunner;
+    }
+
+    @Override
+    public Health health() {
+        return (warmupRunner.isDone() ? Health.up() : Health.outOfService())
+                .withDetails(warmupRunner.status())
+                .build();
+    }
+}
@@ -0,0 +1,344 @@
+package com.tutorial.warmup;
+
+import com.tutorial.config.KafkaConfig;
+import com.tutorial.model.Stock;
+import com.tutorial.service.PaymentService;
+import com.tutorial.service.StockResponseCache;
+import com.tutorial.service.StockService;
+import com.tutorial.util.JwtUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 启动预热：新实例在对外宣告就绪之前先把自己“热”起来，避免扩容 / 发布后的头几分钟全是冷请求。
+ * 1. 建连：并发占用若干数据库连接（主库和只读副本各一轮），把连接池填满；Redis PING；拉取 Kafka 主题元数据；
+ * 2. 预热缓存：最热的商品（各节点定时把本地最近访问的商品 ID 写到 Redis，没有时取前 N 个）写入 Redis
+ *    和本地 JSON 字节缓存；最近的支付单状态写入 Redis（SET NX，不覆盖更新的值）；
+ * 3. JIT 预热：带 JWT 对本机主要的 GET 接口发合成请求（JWT 校验、Jackson、MyBatis 路径都会被编译），
+ *    至少持续 min-duration，之后每轮中位延迟不再明显下降即结束，最长 max-duration。
+ * 期间 {@link WarmupHealthIndicator} 报告 OUT_OF_SERVICE，readiness 健康组因此不就绪，负载均衡不会派流量过来。
+ * 任何一步失败只记日志并继续：预热是优化，不能让实例永远起不来。
+ */
+@Component
+public class WarmupRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(WarmupRunner.class);
+    private static final String HOT_STOCKS_KEY = "warmup:stocks:hot";
+    private static final Duration HOT_STOCKS_TTL = Duration.ofDays(1);
+
+    public enum Phase { PENDING, CONNECTIONS, CACHES, TRAFFIC, DONE }
+
+    private final boolean enabled;
+    private final Duration minDuration;
+    private final Duration maxDuration;
+    private final double settleRatio;
+    private final int concurrency;
+    private final int connections;
+    private final int hotStocks;
+    private final int recentPayments;
+    private final int requestsPerRound;
+
+    private final DataSource dataSource;
+    private final PlatformTransactionManager transactionManager;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final StockService stockService;
+    private final StockResponseCache stockResponseCache;
+    private final PaymentService paymentService;
+    private final JwtUtil jwtUtil;
+
+    private volatile Phase phase;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile int rounds;
+    private volatile double lastMedianMs;
+
+    public WarmupRunner(@Value("${app.warmup.enabled:true}") boolean enabled,
+            @Value("${app.warmup.min-duration:10s}") Duration minDuration,
+            @Value("${app.warmup.max-duration:60s}") Duration maxDuration,
+            @Value("${app.warmup.settle-ratio:1.1}") double settleRatio,
+            @Value("${app.warmup.concurrency:4}") int concurrency,
+            @Value("${app.warmup.connections:8}") int connections,
+            @Value("${app.warmup.hot-stocks:200}") int hotStocks,
+            @Value("${app.warmup.recent-payments:1000}") int recentPayments,
+            @Value("${app.warmup.requests-per-round:400}") int requestsPerRound,
+            DataSource dataSource,
+            PlatformTransactionManager transactionManager,
+            RedisTemplate<String, String> redisTemplate,
+            KafkaTemplate<String, String> kafkaTemplate,
+            StockService stockService,
+            StockResponseCache stockResponseCache,
+            PaymentService paymentService,
+            JwtUtil jwtUtil) {
+        this.enabled = enabled;
+        this.minDuration = minDuration;
+        this.maxDuration = maxDuration;
+        this.settleRatio = settleRatio;
+        this.concurrency = concurrency;
+        this.connections = connections;
+        this.hotStocks = hotStocks;
+        this.recentPayments = recentPayments;
+        this.requestsPerRound = requestsPerRound;
+        this.dataSource = dataSource;
+        this.transactionManager = transactionManager;
+        this.redisTemplate = redisTemplate;
+        this.kafkaTemplate = kafkaTemplate;
+        this.stockService = stockService;
+        this.stockResponseCache = stockResponseCache;
+        this.paymentService = paymentService;
+        this.jwtUtil = jwtUtil;
+        this.phase = enabled ? Phase.PENDING : Phase.DONE;
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp(ApplicationReadyEvent event) {
+        if (!enabled) {
+            return;
+        }
+        startedAt = Instant.now();
+        int port = event.getApplicationContext() instanceof WebServerApplicationContext web
+                ? web.getWebServer().getPort() : -1;
+        try {
+            phase = Phase.CONNECTIONS;
+            step("database connections", this::openDatabaseConnections);
+            step("redis connection", () -> redisTemplate.execute((RedisCallback<String>) RedisConnection::ping));
+            step("kafka metadata", () -> {
+                kafkaTemplate.partitionsFor(KafkaConfig.PAYMENT_TOPIC);
+                kafkaTemplate.partitionsFor(KafkaConfig.STOCK_TOPIC);
+            });
+
+            phase = Phase.CACHES;
+            List<Long> stockIds = new ArrayList<>();
+            List<String> symbols = new ArrayList<>();
+            List<String> paymentIds = new ArrayList<>();
+            step("stock caches", () -> preloadStocks(stockIds, symbols));
+            step("payment statuses", () -> paymentIds.addAll(paymentService.preloadRecentStatuses(recentPayments)));
+
+            phase = Phase.TRAFFIC;
+            if (port > 0) {
+                step("synthetic traffic", () -> exercise(port, stockIds, symbols, paymentIds));
+            }
+        } finally {
+            finishedAt = Instant.now();
+            phase = Phase.DONE;
+            log.info("Warm-up finished in {} ms ({} traffic rounds, last median {} ms)",
+                    Duration.between(startedAt, finishedAt).toMillis(), rounds, lastMedianMs);
+        }
+    }
+
+    /**
+     * Remember which stocks this node served most recently, so the next instance can preload them.
+     */
+    @Scheduled(fixedDelayString = "${app.warmup.hot-stocks-publish-interval:PT1M}")
+    public void publishHotStocks() {
+        if (!enabled) {
+            return;
+        }
+        List<Long> ids = stockResponseCache.recentIds(hotStocks);
+        if (ids.isEmpty()) {
+            return;
+        }
+        StringBuilder joined = new StringBuilder();
+        for (Long id : ids) {
+            joined.append(joined.isEmpty() ? "" : ",").append(id);
+        }
+        try {
+            redisTemplate.opsForValue().set(HOT_STOCKS_KEY, joined.toString(), HOT_STOCKS_TTL);
+        } catch (Exception e) {
+            log.debug("Failed to publish hot stock ids: {}", e.getMessage());
+        }
+    }
+
+    public boolean isDone() {
+        return phase == Phase.DONE;
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("phase", phase);
+        if (startedAt != null) {
+            Instant end = finishedAt != null ? finishedAt : Instant.now();
+            status.put("elapsedMs", Duration.between(startedAt, end).toMillis());
+        }
+        status.put("rounds", rounds);
+        status.put("lastMedianMs", lastMedianMs);
+        return status;
+    }
+
+    private void step(String name, Runnable action) {
+        long start = System.currentTimeMillis();
+        try {
+            action.run();
+            log.info("Warm-up: {} done in {} ms", name, System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            log.warn("Warm-up: {} failed: {}", name, e.getMessage());
+        }
+    }
+
+    /**
+     * Hold {@code connections} connections at the same time so the pool actually grows, once in read-write
+     * transactions (primary) and once in read-only ones (routed to replicas when read/write splitting is on).
+     */
+    private void openDatabaseConnections() {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        ExecutorService pool = Executors.newFixedThreadPool(connections);
+        try {
+            for (boolean readOnly : new boolean[]{false, true}) {
+                TransactionTemplate tx = new TransactionTemplate(transactionManager);
+                tx.setReadOnly(readOnly);
+                CountDownLatch allOpen = new CountDownLatch(connections);
+                List<CompletableFuture<Void>> futures = new ArrayList<>();
+                for (int i = 0; i < connections; i++) {
+                    futures.add(CompletableFuture.runAsync(() -> tx.executeWithoutResult(status -> {
+                        jdbc.queryForObject("SELECT 1", Integer.class);
+                        allOpen.countDown();
+                        await(allOpen);
+                    }), pool));
+                }
+                CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private void preloadStocks(List<Long> stockIds, List<String> symbols) {
+        String hot = redisTemplate.opsForValue().get(HOT_STOCKS_KEY);
+        if (hot != null && !hot.isEmpty()) {
+            Arrays.stream(hot.split(",")).limit(hotStocks).map(Long::valueOf).forEach(stockIds::add);
+        } else {
+            stockService.findAll().stream().limit(hotStocks).map(Stock::getId).forEach(stockIds::add);
+        }
+        for (Long id : stockIds) {
+            StockResponseCache.Entry entry = stockService.findJsonById(id);
+            if (entry != null && entry.symbol() != null) {
+                symbols.add(entry.symbol());
+            }
+        }
+    }
+
+    /**
+     * Replay GET requests against this instance in rounds until the median latency stops improving.
+     */
+    private void exercise(int port, List<Long> stockIds, List<String> symbols, List<String> paymentIds) {
+        String base = "http://localhost:" + port;
+        List<URI> uris = new ArrayList<>();
+        uris.add(URI.create(base + "/api/stocks"));
+        uris.add(URI.create(base + "/api/stocks/query?sort=value&order=desc&limit=50"));
+        uris.add(URI.create(base + "/api/stocks/query?maxQuantity=100&sort=quantity&limit=50&parallel=true"));
+        uris.add(URI.create(base + "/api/lessons"));
+        stockIds.forEach(id -> uris.add(URI.create(base + "/api/stocks/" + id)));
+        symbols.forEach(symbol -> uris.add(URI.create(base + "/api/stocks/symbol/"
+                + URLEncoder.encode(symbol, StandardCharsets.UTF_8))));
+        paymentIds.forEach(id -> uris.add(URI.create(base + "/api/payments/status/" + id)));
+        List<URI> round = uris.size() > requestsPerRound ? uris.subList(0, requestsPerRound) : uris;
+
+        String authorization = "Bearer " + jwtUtil.generateToken("warmup", null, "USER");
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        long start = System.nanoTime();
+        long minEnd = start + minDuration.toNanos();
+        long deadline = start + maxDuration.toNanos();
+        try {
+            double previousMedian = Double.MAX_VALUE;
+            while (true) {
+                double median = runRound(client, workers, round, authorization);
+                rounds++;
+                lastMedianMs = Math.round(median / 10_000.0) / 100.0;
+                long now = System.nanoTime();
+                if (now >= deadline) {
+                    log.info("Warm-up: latency did not settle within {}", maxDuration);
+                    return;
+                }
+                // 中位延迟相比上一轮的改善不足 settle-ratio，说明热点代码已编译完
+                if (now >= minEnd && previousMedian <= median * settleRatio) {
+                    return;
+                }
+                previousMedian = median;
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * @return median request latency in nanoseconds
+     */
+    private double runRound(HttpClient client, ExecutorService workers, List<URI> uris, String authorization) {
+        long[] latencies = new long[uris.size()];
+        AtomicInteger failures = new AtomicInteger();
+        List<CompletableFuture<Void>> futures = new ArrayList<>(uris.size());
+        for (int i = 0; i < uris.size(); i++) {
+            int index = i;
+            futures.add(CompletableFuture.runAsync(() -> {
+                HttpRequest request = HttpRequest.newBuilder(uris.get(index))
+                        .header("Authorization", authorization)
+                        .header("Accept-Encoding", "gzip")
+                        .timeout(Duration.ofSeconds(5))
+                        .GET()
+                        .build();
+                long begin = System.nanoTime();
+                try {
+                    HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                    if (response.statusCode() >= 500) {
+                        failures.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    failures.incrementAndGet();
+                }
+                latencies[index] = System.nanoTime() - begin;
+            }, workers));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        if (failures.get() > 0) {
+            log.debug("Warm-up round: {} of {} requests failed", failures.get(), uris.size());
+        }
+        Arrays.sort(latencies);
+        return latencies.length == 0 ? 0 : latencies[latencies.length / 2];
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            // 连接池上限小于 connections 时凑不齐，超时后照常释放
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
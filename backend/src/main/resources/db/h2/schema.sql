@@ -0,0 +1,67 @@
+-- ============================================================
+-- CodeForge schema for local embedded H2 databases (MODE=MySQL).
+-- Mirrors ../../schema.sql; used by the *-local Spring profiles.
+-- ============================================================
+
+CREATE TABLE IF NOT EXISTS users (
+    id          BIGINT AUTO_INCREMENT PRIMARY KEY,
+    username    VARCHAR(50)  NOT NULL UNIQUE,
+    email       VARCHAR(100) NOT NULL UNIQUE,
+    password    VARCHAR(255) NOT NULL,
+    role        VARCHAR(20)  NOT NULL DEFAULT 'USER',
+    created_at  TIMESTAMP    NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at  TIMESTAMP    NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS payments (
+    id          BIGINT AUTO_INCREMENT PRIMARY KEY,
+    payment_id  VARCHAR(36)    NOT NULL UNIQUE,
+    user_id     BIGINT         NOT NULL,
+    amount      DECIMAL(10, 2) NOT NULL,
+    currency    VARCHAR(3)     NOT NULL DEFAULT 'USD',
+    status      VARCHAR(20)    NOT NULL DEFAULT 'PENDING',
+    description VARCHAR(255),
+    created_at  TIMESTAMP      NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at  TIMESTAMP      NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_user_id ON payments (user_id);
+CREATE INDEX IF NOT EXISTS idx_status ON payments (status);
+
+CREATE TABLE IF NOT EXISTS payments_archive (
+    id          BIGINT AUTO_INCREMENT PRIMARY KEY,
+    payment_id  VARCHAR(36)    NOT NULL UNIQUE,
+    user_id     BIGINT         NOT NULL,
+    amount      DECIMAL(10, 2) NOT NULL,
+    currency    VARCHAR(3)     NOT NULL,
+    status      VARCHAR(20)    NOT NULL,
+    description VARCHAR(255),
+    created_at  TIMESTAMP      NOT NULL,
+    updated_at  TIMESTAMP      NOT NULL,
+    archived_at TIMESTAMP      NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS payment_shard_map (
+    bucket       INT       NOT NULL PRIMARY KEY,
+    shard        INT       NOT NULL,
+    target_shard INT,
+    updated_at   TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS stocks (
+    id          BIGINT AUTO_INCREMENT PRIMARY KEY,
+    symbol      VARCHAR(10)    NOT NULL UNIQUE,
+    name        VARCHAR(100)   NOT NULL,
+    price       DECIMAL(12, 4) NOT NULL DEFAULT 0.0000,
+    quantity    INT            NOT NULL DEFAULT 0,
+    category    VARCHAR(50),
+    created_at  TIMESTAMP      NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at  TIMESTAMP      NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_category ON stocks (category);
+
+MERGE INTO stocks (symbol, name, price, quantity, category) KEY (symbol) VALUES
+    ('AAPL', 'Apple Inc.', 189.8400, 1000, 'Technology'),
+    ('GOOGL', 'Alphabet Inc.', 141.8000, 500, 'Technology'),
+    ('AMZN', 'Amazon.com Inc.', 178.2500, 750, 'E-Commerce'),
+    ('MSFT', 'Microsoft Corp.', 378.9100, 300, 'Technology'),
+    ('TSLA', 'Tesla Inc.', 248.4200, 400, 'Automotive');
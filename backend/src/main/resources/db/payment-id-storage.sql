@@ -0,0 +1,39 @@
+-- ============================================================
+-- payment_id storage migration (MySQL 8)
+-- Run before starting the application with the matching app.payment-id.storage.
+-- Run it against every shard as well when app.sharding.enabled=true.
+-- ============================================================
+
+-- ── string -> binary (BINARY(16)): app.payment-id.strategy must be uuid or uuidv7 ──
+-- Existing UUID strings are converted in place; the external form is unchanged.
+
+ALTER TABLE payments ADD COLUMN payment_id_bin BINARY(16) NULL AFTER payment_id;
+UPDATE payments SET payment_id_bin = UNHEX(REPLACE(payment_id, '-', ''));
+ALTER TABLE payments
+    DROP INDEX payment_id,
+    DROP INDEX idx_payment_id,
+    DROP COLUMN payment_id,
+    CHANGE COLUMN payment_id_bin payment_id BINARY(16) NOT NULL,
+    ADD UNIQUE KEY uk_payment_id (payment_id);
+
+ALTER TABLE payments_archive ADD COLUMN payment_id_bin BINARY(16) NULL AFTER payment_id;
+UPDATE payments_archive SET payment_id_bin = UNHEX(REPLACE(payment_id, '-', ''));
+ALTER TABLE payments_archive
+    DROP INDEX payment_id,
+    DROP COLUMN payment_id,
+    CHANGE COLUMN payment_id_bin payment_id BINARY(16) NOT NULL,
+    ADD UNIQUE KEY uk_payment_id (payment_id);
+
+-- ── string -> bigint: app.payment-id.strategy must be snowflake ──
+-- UUIDs cannot be represented as BIGINT, so this only applies to tables without UUID ids
+-- (new deployments, or after every UUID-era payment has been archived elsewhere).
+--
+-- ALTER TABLE payments
+--     DROP INDEX payment_id,
+--     DROP INDEX idx_payment_id,
+--     MODIFY COLUMN payment_id BIGINT NOT NULL,
+--     ADD UNIQUE KEY uk_payment_id (payment_id);
+-- ALTER TABLE payments_archive
+--     DROP INDEX payment_id,
+--     MODIFY COLUMN payment_id BIGINT NOT NULL,
+--     ADD UNIQUE KEY uk_payment_id (payment_id);
@@ -35,6 +35,31 @@ CREATE TABLE IF NOT EXISTS payments (
     FOREIGN KEY (user_id) REFERENCES users(id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
+-- Archived payments: finished (COMPLETED / FAILED) rows moved out of `payments`
+-- by PaymentArchiver once they are older than app.archive.min-age.
+-- Cold data, so the table is stored compressed and only indexed by payment_id.
+CREATE TABLE IF NOT EXISTS payments_archive (
+    id          BIGINT AUTO_INCREMENT PRIMARY KEY,
+    payment_id  VARCHAR(36)    NOT NULL UNIQUE,
+    user_id     BIGINT         NOT NULL,
+    amount      DECIMAL(10, 2) NOT NULL,
+    currency    VARCHAR(3)     NOT NULL,
+    status      VARCHAR(20)    NOT NULL,
+    description VARCHAR(255),
+    created_at  TIMESTAMP      NOT NULL,
+    updated_at  TIMESTAMP      NOT NULL,
+    archived_at TIMESTAMP      NOT NULL DEFAULT CURRENT_TIMESTAMP
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 ROW_FORMAT=COMPRESSED;
+
+-- Payment bucket → shard assignments (only used when app.sharding.enabled=true).
+-- Buckets without a row live on shard (bucket % shard count).
+CREATE TABLE IF NOT EXISTS payment_shard_map (
+    bucket       INT       NOT NULL PRIMARY KEY,
+    shard        INT       NOT NULL,
+    target_shard INT,
+    updated_at   TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
 -- Stocks / Inventory table
 CREATE TABLE IF NOT EXISTS stocks (
     id          BIGINT AUTO_INCREMENT PRIMARY KEY,
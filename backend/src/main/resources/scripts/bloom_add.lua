@@ -0,0 +1,67 @@
+-- Scalable Bloom filter: add values.
+-- Each generation is a stack of bitmap layers; when the newest layer reaches its capacity a new
+-- layer twice as large (with half the false-positive rate) is started, keeping the overall rate bounded.
+-- KEYS[1]  pointer to the live generation
+-- KEYS[2]  pointer to the generation being rebuilt (if any)
+-- ARGV[1]  key base, e.g. "bloom:{payments}"
+-- ARGV[2]  capacity of the first layer
+-- ARGV[3]  target false-positive rate of the first layer
+-- ARGV[4]  explicit generation to write to, or "" for live + rebuilding
+-- ARGV[5..] pairs of 32-bit hashes h1, h2 (one pair per value)
+
+local base = ARGV[1]
+local capacity = tonumber(ARGV[2])
+local fpp = tonumber(ARGV[3])
+
+local function params(layer)
+    local n = capacity * (2 ^ layer)
+    local p = fpp * (0.5 ^ layer)
+    local m = math.ceil(-n * math.log(p) / (math.log(2) ^ 2))
+    local k = math.max(1, math.floor(m / n * math.log(2) + 0.5))
+    return n, m, k
+end
+
+local function addTo(gen)
+    local prefix = base .. ':g' .. gen
+    local meta = prefix .. ':meta'
+    local layers = tonumber(redis.call('HGET', meta, 'layers') or '0')
+    local count = tonumber(redis.call('HGET', meta, 'count') or '0')
+    if layers == 0 then
+        layers = 1
+        count = 0
+        redis.call('HSET', meta, 'layers', layers, 'count', count)
+    end
+    local layer = layers - 1
+    local n, m, k = params(layer)
+    for i = 5, #ARGV, 2 do
+        if count >= n then
+            layer = layers
+            layers = layers + 1
+            count = 0
+            n, m, k = params(layer)
+            redis.call('HSET', meta, 'layers', layers, 'count', count)
+        end
+        local h1 = tonumber(ARGV[i])
+        local h2 = tonumber(ARGV[i + 1])
+        for j = 0, k - 1 do
+            redis.call('SETBIT', prefix .. ':' .. layer, (h1 + j * h2) % m, 1)
+        end
+        count = count + 1
+    end
+    redis.call('HSET', meta, 'count', count)
+end
+
+if ARGV[4] ~= '' then
+    addTo(ARGV[4])
+    return 1
+end
+
+local live = redis.call('GET', KEYS[1])
+local building = redis.call('GET', KEYS[2])
+if live then
+    addTo(live)
+end
+if building and building ~= live then
+    addTo(building)
+end
+return 1
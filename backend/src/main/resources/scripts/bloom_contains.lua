@@ -0,0 +1,37 @@
+-- Scalable Bloom filter: membership test against every layer of the live generation.
+-- KEYS[1]  pointer to the live generation
+-- ARGV[1]  key base, ARGV[2] first-layer capacity, ARGV[3] first-layer false-positive rate
+-- ARGV[4]  h1, ARGV[5] h2
+-- Returns 1 = maybe present, 0 = definitely absent, -1 = filter not built yet.
+
+local live = redis.call('GET', KEYS[1])
+if not live then
+    return -1
+end
+
+local base = ARGV[1]
+local capacity = tonumber(ARGV[2])
+local fpp = tonumber(ARGV[3])
+local h1 = tonumber(ARGV[4])
+local h2 = tonumber(ARGV[5])
+
+local prefix = base .. ':g' .. live
+local layers = tonumber(redis.call('HGET', prefix .. ':meta', 'layers') or '0')
+
+for layer = 0, layers - 1 do
+    local n = capacity * (2 ^ layer)
+    local p = fpp * (0.5 ^ layer)
+    local m = math.ceil(-n * math.log(p) / (math.log(2) ^ 2))
+    local k = math.max(1, math.floor(m / n * math.log(2) + 0.5))
+    local all = true
+    for j = 0, k - 1 do
+        if redis.call('GETBIT', prefix .. ':' .. layer, (h1 + j * h2) % m) == 0 then
+            all = false
+            break
+        end
+    end
+    if all then
+        return 1
+    end
+end
+return 0
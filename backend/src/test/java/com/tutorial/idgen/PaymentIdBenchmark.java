@@ -0,0 +1,207 @@
+package com.tutorial.idgen;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ID 方案压测（仅在 id-bench profile 下运行，跑完即退出）：
+ *   mvn spring-boot:test-run -Dspring-boot.run.profiles=id-bench
+ * 位于测试源码集，不会打进发布的 jar；test-run 用测试 classpath 启动主应用，组件扫描会带上本类。
+ * 对每种“生成策略 + 存储格式”组合：
+ * 1. 多线程生成 ID 的吞吐；
+ * 2. 在临时表里用多个写线程批量插入，分别统计前 10% 与后 10% 的插入速率（观察表变大后是否退化）以及最终索引大小。
+ * 临时表结构与 payments 一致（自增主键 + payment_id 唯一索引），测完即删除。应指向与生产同配置的 MySQL 运行。
+ */
+@Component
+@Profile("id-bench")
+public class PaymentIdBenchmark implements CommandLineRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentIdBenchmark.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationContext context;
+    private final int rows;
+    private final int batchSize;
+    private final int writers;
+    private final int generateCount;
+
+    public PaymentIdBenchmark(JdbcTemplate jdbcTemplate,
+            ApplicationContext context,
+            @Value("${app.payment-id.bench.rows:200000}") int rows,
+            @Value("${app.payment-id.bench.batch-size:500}") int batchSize,
+            @Value("${app.payment-id.bench.writers:4}") int writers,
+            @Value("${app.payment-id.bench.generate-count:2000000}") int generateCount) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.context = context;
+        this.rows = rows;
+        this.batchSize = batchSize;
+        this.writers = writers;
+        this.generateCount = generateCount;
+    }
+
+    @Override
+    public void run(String... args) throws Exception {
+        List<Scenario> scenarios = List.of(
+                new Scenario(new RandomUuidGenerator(), PaymentIdStorage.STRING, "VARCHAR(36)"),
+                new Scenario(new UuidV7Generator(), PaymentIdStorage.STRING, "VARCHAR(36)"),
+                new Scenario(new UuidV7Generator(), PaymentIdStorage.BINARY, "BINARY(16)"),
+                new Scenario(new SnowflakeIdGenerator(1), PaymentIdStorage.BIGINT, "BIGINT"));
+
+        List<String> report = new ArrayList<>();
+        report.add(String.format("%-10s %-7s %14s %14s %14s %12s",
+                "strategy", "storage", "gen ids/s", "insert first", "insert last", "index KB"));
+        for (Scenario scenario : scenarios) {
+            long generated = generationThroughput(scenario.generator());
+            long[] insert = insertThroughput(scenario);
+            report.add(String.format("%-10s %-7s %14d %14d %14d %12s",
+                    scenario.generator().name(), scenario.storage().name().toLowerCase(),
+                    generated, insert[0], insert[1], insert[2] < 0 ? "n/a" : String.valueOf(insert[2] / 1024)));
+        }
+        log.info("Payment id benchmark ({} rows, {} writers, batch {}):\n{}",
+                rows, writers, batchSize, String.join("\n", report));
+
+        System.exit(SpringApplication.exit(context, () -> 0));
+    }
+
+    /**
+     * IDs per second with one generating thread per core.
+     */
+    private long generationThroughput(PaymentIdGenerator generator) throws Exception {
+        int threads = Runtime.getRuntime().availableProcessors();
+        int perThread = generateCount / threads;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            // 预热，让 JIT 编译完成后再计时
+            runGenerators(pool, generator, threads, perThread / 10);
+            long start = System.nanoTime();
+            runGenerators(pool, generator, threads, perThread);
+            return (long) threads * perThread * 1_000_000_000L / (System.nanoTime() - start);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private void runGenerators(ExecutorService pool, PaymentIdGenerator generator, int threads, int perThread)
+            throws Exception {
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                int sink = 0;
+                for (int i = 0; i < perThread; i++) {
+                    sink += generator.nextId((long) i).length();
+                }
+                return sink;
+            }));
+        }
+        for (Future<Integer> future : futures) {
+            future.get();
+        }
+    }
+
+    /**
+     * @return rows/s over the first 10% of rows, rows/s over the last 10%, and the final index size in bytes
+     * (-1 when the database does not report it)
+     */
+    private long[] insertThroughput(Scenario scenario) throws Exception {
+        String table = "payment_id_bench_" + scenario.generator().name() + "_" + scenario.storage().name().toLowerCase();
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + table);
+        jdbcTemplate.execute("CREATE TABLE " + table + " ("
+                + "id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "payment_id " + scenario.columnType() + " NOT NULL UNIQUE, "
+                + "user_id BIGINT NOT NULL, "
+                + "amount DECIMAL(10, 2) NOT NULL, "
+                + "created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP) ENGINE=InnoDB");
+        String sql = "INSERT INTO " + table + " (payment_id, user_id, amount) VALUES (?, ?, ?)";
+
+        int window = Math.max(batchSize, rows / 10);
+        AtomicLong inserted = new AtomicLong();
+        AtomicLong firstWindowNanos = new AtomicLong();
+        AtomicLong lastWindowStart = new AtomicLong();
+        long start = System.nanoTime();
+
+        ExecutorService pool = Executors.newFixedThreadPool(writers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                futures.add(pool.submit(() -> {
+                    while (true) {
+                        long done = inserted.getAndAdd(batchSize);
+                        if (done >= rows) {
+                            return null;
+                        }
+                        if (done >= rows - window) {
+                            lastWindowStart.compareAndSet(0, System.nanoTime());
+                        }
+                        insertBatch(sql, scenario, (int) Math.min(batchSize, rows - done));
+                        if (done + batchSize >= window) {
+                            firstWindowNanos.compareAndSet(0, System.nanoTime() - start);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        long end = System.nanoTime();
+
+        long first = window * 1_000_000_000L / Math.max(1, firstWindowNanos.get());
+        long last = window * 1_000_000_000L / Math.max(1, end - lastWindowStart.get());
+        long indexBytes = indexSize(table);
+        jdbcTemplate.execute("DROP TABLE " + table);
+        return new long[]{first, last, indexBytes};
+    }
+
+    private void insertBatch(String sql, Scenario scenario, int size) {
+        jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                long userId = ThreadLocalRandom.current().nextLong(1, 100_000);
+                scenario.storage().bind(ps, 1, scenario.generator().nextId(userId));
+                ps.setLong(2, userId);
+                ps.setBigDecimal(3, BigDecimal.valueOf(ThreadLocalRandom.current().nextInt(1, 100_000), 2));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return size;
+            }
+        });
+    }
+
+    private long indexSize(String table) {
+        try {
+            jdbcTemplate.execute("ANALYZE TABLE " + table);
+            Long size = jdbcTemplate.queryForObject(
+                    "SELECT index_length FROM information_schema.tables WHERE table_schema = DATABASE() AND table_name = ?",
+                    Long.class, table);
+            return size != null ? size : -1;
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    private record Scenario(PaymentIdGenerator generator, PaymentIdStorage storage, String columnType) {
+    }
+}
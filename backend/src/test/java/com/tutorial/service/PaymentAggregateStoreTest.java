@@ -0,0 +1,243 @@
+package com.tutorial.service;
+
+import com.tutorial.config.KafkaConfig;
+import com.tutorial.consumer.PaymentAggregateConsumer;
+import com.tutorial.model.Payment;
+import com.tutorial.service.PaymentAggregateStore.Granularity;
+import com.tutorial.service.PaymentAggregateStore.Kind;
+import com.tutorial.service.PaymentAggregateStore.Sum;
+import com.tutorial.service.PaymentAggregateStore.Window;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.kafka.annotation.EnableKafka;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * PaymentAggregateStore + PaymentAggregateConsumer against an embedded broker: totals from both topics with
+ * duplicates, then a restart from the checkpoint that resumes at the stored offsets instead of re-reading.
+ */
+@EmbeddedKafka(topics = {KafkaConfig.PAYMENT_TOPIC, KafkaConfig.PAYMENT_STATUS_TOPIC}, partitions = 1)
+class PaymentAggregateStoreTest {
+
+    private static final TopicPartition PAYMENTS = new TopicPartition(KafkaConfig.PAYMENT_TOPIC, 0);
+    private static final TopicPartition STATUSES = new TopicPartition(KafkaConfig.PAYMENT_STATUS_TOPIC, 0);
+
+    private AnnotationConfigApplicationContext context;
+
+    @AfterEach
+    void close() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Test
+    void aggregatesDeduplicatesAndResumesFromCheckpoint(EmbeddedKafkaBroker broker, @TempDir Path directory)
+            throws Exception {
+        long timestamp = System.currentTimeMillis();
+        LocalDate day = Instant.ofEpochMilli(timestamp).atZone(ZoneOffset.UTC).toLocalDate();
+        String dayPeriod = day.toString();
+        String monthPeriod = YearMonth.from(day).toString();
+
+        // ── 第一次启动：从头重建 ──
+        context = start(broker, directory);
+        PaymentAggregateStore store = context.getBean(PaymentAggregateStore.class);
+        KafkaTemplate<String, String> template = template(context);
+
+        send(template, KafkaConfig.PAYMENT_TOPIC, payment("p1", 1L, "10.00", "USD", "PENDING"), timestamp);
+        send(template, KafkaConfig.PAYMENT_TOPIC, payment("p2", 1L, "5.50", "USD", "PENDING"), timestamp);
+        send(template, KafkaConfig.PAYMENT_TOPIC, payment("p3", 2L, "7.00", "EUR", "PENDING"), timestamp);
+        // 重新发布（重试 / 死信重放）：新 offset、同一笔支付
+        send(template, KafkaConfig.PAYMENT_TOPIC, payment("p1", 1L, "10.00", "USD", "PENDING"), timestamp);
+        send(template, KafkaConfig.PAYMENT_STATUS_TOPIC, payment("p1", 1L, "10.00", "USD", "COMPLETED"), timestamp);
+        send(template, KafkaConfig.PAYMENT_STATUS_TOPIC, payment("p2", 1L, "5.50", "USD", "FAILED"), timestamp);
+        send(template, KafkaConfig.PAYMENT_STATUS_TOPIC, payment("p1", 1L, "10.00", "USD", "COMPLETED"), timestamp);
+
+        awaitOffsets(store, 4, 3);
+        assertThat(counter(context, "payment.aggregates.duplicates")).isEqualTo(2);
+
+        for (Granularity granularity : Granularity.values()) {
+            String period = granularity == Granularity.DAY ? dayPeriod : monthPeriod;
+            Window user = store.totals(1L, granularity, period);
+            assertThat(user.complete()).isTrue();
+            assertSum(user, "USD", Kind.SUBMITTED, 2, "15.50");
+            assertSum(user, "USD", Kind.COMPLETED, 1, "10.00");
+            assertSum(user, "USD", Kind.FAILED, 1, "5.50");
+            assertThat(user.totals()).doesNotContainKey("EUR");
+
+            Window all = store.totals(null, granularity, period);
+            assertSum(all, "USD", Kind.SUBMITTED, 2, "15.50");
+            assertSum(all, "EUR", Kind.SUBMITTED, 1, "7.00");
+            assertSum(all, "EUR", Kind.COMPLETED, 0, "0");
+        }
+
+        store.checkpoint();
+        context.close();
+
+        // ── 第二次启动：从检查点恢复，从记录的 offset 继续 ──
+        context = start(broker, directory);
+        store = context.getBean(PaymentAggregateStore.class);
+        template = template(context);
+        assertThat(store.nextOffset(PAYMENTS)).isGreaterThanOrEqualTo(4L);
+        assertThat(store.nextOffset(STATUSES)).isGreaterThanOrEqualTo(3L);
+
+        send(template, KafkaConfig.PAYMENT_TOPIC, payment("p4", 1L, "2.50", "USD", "PENDING"), timestamp);
+        send(template, KafkaConfig.PAYMENT_STATUS_TOPIC, payment("p3", 2L, "7.00", "EUR", "COMPLETED"), timestamp);
+        // 检查点之前已计入的事件再次发布，仍由恢复出来的去重状态挡掉
+        send(template, KafkaConfig.PAYMENT_STATUS_TOPIC, payment("p2", 1L, "5.50", "USD", "FAILED"), timestamp);
+
+        awaitOffsets(store, 5, 5);
+        // 没有旧 offset 被重新读到：消费者确实 seek 到了检查点里的位置
+        assertThat(counter(context, "payment.aggregates.skipped")).isZero();
+        assertThat(counter(context, "payment.aggregates.duplicates")).isEqualTo(1);
+
+        for (Granularity granularity : Granularity.values()) {
+            String period = granularity == Granularity.DAY ? dayPeriod : monthPeriod;
+            Window user = store.totals(1L, granularity, period);
+            assertSum(user, "USD", Kind.SUBMITTED, 3, "18.00");
+            assertSum(user, "USD", Kind.COMPLETED, 1, "10.00");
+            assertSum(user, "USD", Kind.FAILED, 1, "5.50");
+
+            Window all = store.totals(null, granularity, period);
+            assertSum(all, "EUR", Kind.SUBMITTED, 1, "7.00");
+            assertSum(all, "EUR", Kind.COMPLETED, 1, "7.00");
+        }
+    }
+
+    private static AnnotationConfigApplicationContext start(EmbeddedKafkaBroker broker, Path directory) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", Map.of(
+                "spring.kafka.bootstrap-servers", broker.getBrokersAsString(),
+                "app.payments.aggregates.directory", directory.toString(),
+                "app.payments.aggregates.zone", "UTC",
+                "app.payments.aggregates.dedupe-expected-events", "10000")));
+        context.register(TestConfig.class);
+        context.refresh();
+        return context;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static KafkaTemplate<String, String> template(AnnotationConfigApplicationContext context) {
+        return context.getBean(KafkaTemplate.class);
+    }
+
+    private static void send(KafkaTemplate<String, String> template, String topic, Payment payment, long timestamp)
+            throws Exception {
+        template.send(new ProducerRecord<>(topic, 0, timestamp, payment.getPaymentId(), payment.toJson()))
+                .get();
+    }
+
+    private static Payment payment(String paymentId, Long userId, String amount, String currency, String status) {
+        return Payment.builder()
+                .paymentId(paymentId)
+                .userId(userId)
+                .amount(new BigDecimal(amount))
+                .currency(currency)
+                .status(status)
+                .build();
+    }
+
+    private static void awaitOffsets(PaymentAggregateStore store, long payments, long statuses) {
+        await().atMost(Duration.ofSeconds(30)).untilAsserted(() -> {
+            assertThat(store.nextOffset(PAYMENTS)).isEqualTo(payments);
+            assertThat(store.nextOffset(STATUSES)).isEqualTo(statuses);
+        });
+    }
+
+    private static double counter(AnnotationConfigApplicationContext context, String name) {
+        return context.getBean(MeterRegistry.class).counter(name).count();
+    }
+
+    private static void assertSum(Window window, String currency, Kind kind, long count, String amount) {
+        Sum sum = window.totals().get(currency).get(kind);
+        assertThat(sum.count()).as("%s %s count", currency, kind).isEqualTo(count);
+        assertThat(sum.amount()).as("%s %s amount", currency, kind).isEqualByComparingTo(amount);
+    }
+
+    @Configuration
+    @EnableKafka
+    static class TestConfig {
+
+        @Bean
+        static PropertySourcesPlaceholderConfigurer propertySourcesPlaceholderConfigurer() {
+            return new PropertySourcesPlaceholderConfigurer();
+        }
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        ConsumerFactory<String, String> consumerFactory(@Value("${spring.kafka.bootstrap-servers}") String brokers) {
+            return new DefaultKafkaConsumerFactory<>(Map.of(
+                    ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, brokers,
+                    ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class,
+                    ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class));
+        }
+
+        @Bean
+        ConcurrentKafkaListenerContainerFactory<String, String> kafkaListenerContainerFactory(
+                ConsumerFactory<String, String> consumerFactory) {
+            ConcurrentKafkaListenerContainerFactory<String, String> factory = new ConcurrentKafkaListenerContainerFactory<>();
+            factory.setConsumerFactory(consumerFactory);
+            return factory;
+        }
+
+        @Bean
+        KafkaTemplate<String, String> kafkaTemplate(@Value("${spring.kafka.bootstrap-servers}") String brokers) {
+            return new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(Map.of(
+                    ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, brokers,
+                    ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class,
+                    ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class)));
+        }
+
+        @Bean
+        PaymentAggregateStore paymentAggregateStore(MeterRegistry meterRegistry,
+                @Value("${app.payments.aggregates.directory}") Path directory,
+                @Value("${app.payments.aggregates.zone}") ZoneId zone,
+                @Value("${app.payments.aggregates.dedupe-expected-events}") long dedupeExpected) {
+            return new PaymentAggregateStore(meterRegistry, directory, zone, 62, 24, Duration.ofDays(14),
+                    dedupeExpected, 0.000001);
+        }
+
+        @Bean
+        PaymentAggregateConsumer paymentAggregateConsumer(PaymentAggregateStore paymentAggregateStore) {
+            return new PaymentAggregateConsumer(paymentAggregateStore);
+        }
+    }
+}